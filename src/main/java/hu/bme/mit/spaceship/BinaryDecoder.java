@@ -0,0 +1,172 @@
+package hu.bme.mit.spaceship;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Reads commands in the {@link BinaryFormat} straight into a {@link Program}.
+ *
+ * Frames are read in large batches; decoding a frame is a few fixed-offset reads, with nothing
+ * to tokenize, parse or validate beyond the opcode.
+ */
+final class BinaryDecoder {
+
+    static final int DEFAULT_BATCH_SIZE = 2048;
+
+    private static final FiringMode[] firingModes = FiringMode.values();
+
+    private final InputStream in;
+    private final byte[] bytes;
+    private final ByteBuffer buffer;
+
+    // names of the named ships by number; each buffer holds exactly the name
+    private ByteBuffer[] names = new ByteBuffer[16];
+    private int nameCount;
+
+    // number of frames decoded so far, for error messages
+    private long frames;
+
+    BinaryDecoder(InputStream in) {
+        this(in, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param batchSize Maximum number of frames decoded at once
+     */
+    BinaryDecoder(InputStream in, int batchSize) {
+        this.in = in;
+        this.bytes = new byte[batchSize * BinaryFormat.FRAME_SIZE];
+        this.buffer = ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * Decode the next batch of frames, appending the commands to a program.
+     *
+     * @return false at the end of the input
+     * @throws IOException if the input cannot be read or is not a valid binary script
+     */
+    boolean next(Program program) throws IOException {
+        int length = read();
+        if (length == 0) {
+            if (frames == 0) {
+                throw new IOException("Missing header of binary script");
+            }
+            return false;
+        }
+        for (int at = 0; at < length; at += BinaryFormat.FRAME_SIZE) {
+            decode(program, at);
+            frames++;
+        }
+        return true;
+    }
+
+    private void decode(Program program, int at) throws IOException {
+        byte opcode = buffer.get(at + BinaryFormat.OPCODE);
+        if (frames == 0) {
+            if (opcode != BinaryFormat.HEADER
+                    || buffer.getInt(at + BinaryFormat.MAGIC_FIELD) != BinaryFormat.MAGIC) {
+                throw new IOException("Not a binary script");
+            }
+            if (buffer.getShort(at + BinaryFormat.VERSION_FIELD) != BinaryFormat.VERSION) {
+                throw new IOException("Unsupported binary script version: "
+                        + buffer.getShort(at + BinaryFormat.VERSION_FIELD));
+            }
+            return;
+        }
+
+        int ship = buffer.getInt(at + BinaryFormat.SHIP);
+        switch (opcode) {
+            case BinaryFormat.NAME:
+                defineName(ship, at + BinaryFormat.NAME_CHUNK,
+                        buffer.get(at + BinaryFormat.LENGTH));
+                break;
+            case BinaryFormat.GT4500:
+                int gt4500Offset = nameOffset(program, ship);
+                program.addGT4500(gt4500Offset, nameLength(ship),
+                        buffer.getInt(at + BinaryFormat.PRIMARY_COUNT),
+                        buffer.getDouble(at + BinaryFormat.PRIMARY_RATE),
+                        buffer.getInt(at + BinaryFormat.SECONDARY_COUNT),
+                        buffer.getDouble(at + BinaryFormat.SECONDARY_RATE));
+                break;
+            case BinaryFormat.TORPEDO:
+                int mode = buffer.get(at + BinaryFormat.MODE);
+                int count = buffer.getInt(at + BinaryFormat.COUNT);
+                if (mode < 0 || mode >= firingModes.length || count < 0) {
+                    throw invalidFrame("invalid TORPEDO parameters");
+                }
+                int torpedoOffset = nameOffset(program, ship);
+                program.addTorpedo(torpedoOffset, nameLength(ship), firingModes[mode], count);
+                break;
+            case BinaryFormat.EXIT:
+                program.addExit();
+                break;
+            default:
+                throw invalidFrame("unknown opcode " + opcode);
+        }
+    }
+
+    /**
+     * Define a name or continue the definition of the last one.
+     */
+    private void defineName(int ship, int from, int length) throws IOException {
+        if (length < 0 || length > BinaryFormat.MAX_NAME_CHUNK) {
+            throw invalidFrame("invalid name length " + length);
+        }
+        if (ship == nameCount) {
+            if (nameCount == names.length) {
+                names = Arrays.copyOf(names, nameCount * 2);
+            }
+            names[nameCount++] = ByteBuffer.wrap(Arrays.copyOfRange(bytes, from, from + length));
+        } else if (ship == nameCount - 1) {
+            ByteBuffer name = names[ship];
+            byte[] longer = Arrays.copyOf(name.array(), name.capacity() + length);
+            System.arraycopy(bytes, from, longer, name.capacity(), length);
+            names[ship] = ByteBuffer.wrap(longer);
+        } else {
+            throw invalidFrame("ship " + ship + " is not the next one to name");
+        }
+    }
+
+    /**
+     * @return the offset of the name of a ship in the name pool of the program
+     */
+    private int nameOffset(Program program, int ship) throws IOException {
+        if (ship == BinaryFormat.UNNAMED) {
+            return Program.UNNAMED;
+        }
+        if (ship < 0 || ship >= nameCount) {
+            throw invalidFrame("unknown ship " + ship);
+        }
+        return program.addName(names[ship], 0, names[ship].capacity());
+    }
+
+    private int nameLength(int ship) {
+        return ship == BinaryFormat.UNNAMED ? 0 : names[ship].capacity();
+    }
+
+    private IOException invalidFrame(String reason) {
+        return new IOException("Invalid frame " + frames + ": " + reason);
+    }
+
+    /**
+     * Read at least one frame (unless at the end of the input) and only whole frames.
+     *
+     * @return the number of bytes read
+     */
+    private int read() throws IOException {
+        int length = 0;
+        while (length == 0 || length % BinaryFormat.FRAME_SIZE != 0) {
+            int n = in.read(bytes, length, bytes.length - length);
+            if (n < 0) {
+                if (length % BinaryFormat.FRAME_SIZE != 0) {
+                    throw new IOException("Truncated frame at the end of the binary script");
+                }
+                break;
+            }
+            length += n;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,141 @@
+package hu.bme.mit.spaceship;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes commands in the {@link BinaryFormat}.
+ */
+final class BinaryEncoder implements Closeable, Flushable {
+
+    private final OutputStream out;
+    private final ByteBuffer frame = ByteBuffer.allocate(BinaryFormat.FRAME_SIZE);
+
+    // numbers of the named ships
+    private final Map<String, Integer> ships = new HashMap<>();
+
+    /**
+     * Start a binary script by writing its header.
+     */
+    BinaryEncoder(OutputStream out) throws IOException {
+        this.out = new BufferedOutputStream(out, 64 * 1024);
+        frame.put(BinaryFormat.OPCODE, BinaryFormat.HEADER);
+        frame.putInt(BinaryFormat.MAGIC_FIELD, BinaryFormat.MAGIC);
+        frame.putShort(BinaryFormat.VERSION_FIELD, BinaryFormat.VERSION);
+        writeFrame();
+    }
+
+    /**
+     * Convert a text script to binary form.
+     *
+     * Comments and empty lines are dropped. Only valid GT4500, TORPEDO and EXIT commands have a
+     * binary form.
+     *
+     * @throws IllegalArgumentException if a command has no binary form, with the line number
+     */
+    static void convert(LineReader lines, BinaryEncoder encoder) throws IOException {
+        CommandTokenizer tokens = new CommandTokenizer();
+        Program program = new Program();
+        ScriptCompiler compiler = new ScriptCompiler(program, false);
+        for (int line = 1; lines.next(); line++) {
+            if (!tokens.tokenize(lines.buffer(), lines.start(), lines.end())) {
+                continue;
+            }
+            program.clear();
+            compiler.compile(tokens);
+            try {
+                if (compiler.isBlockOpen()) {
+                    throw new IllegalArgumentException("REPEAT blocks have no binary form");
+                }
+                program.encode(encoder);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("line " + line + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * @param name Name of the ship, or null for the unnamed ship
+     */
+    void gt4500(String name, int primaryCount, double primaryFailRate, int secondaryCount,
+            double secondaryFailRate) throws IOException {
+        int ship = ship(name);
+        frame.put(BinaryFormat.OPCODE, BinaryFormat.GT4500);
+        frame.putInt(BinaryFormat.SHIP, ship);
+        frame.putInt(BinaryFormat.PRIMARY_COUNT, primaryCount);
+        frame.putInt(BinaryFormat.SECONDARY_COUNT, secondaryCount);
+        frame.putDouble(BinaryFormat.PRIMARY_RATE, primaryFailRate);
+        frame.putDouble(BinaryFormat.SECONDARY_RATE, secondaryFailRate);
+        writeFrame();
+    }
+
+    /**
+     * @param name Name of the ship, or null for the unnamed ship
+     */
+    void torpedo(String name, FiringMode firingMode, int count) throws IOException {
+        int ship = ship(name);
+        frame.put(BinaryFormat.OPCODE, BinaryFormat.TORPEDO);
+        frame.put(BinaryFormat.MODE, (byte) firingMode.ordinal());
+        frame.putInt(BinaryFormat.SHIP, ship);
+        frame.putInt(BinaryFormat.COUNT, count);
+        writeFrame();
+    }
+
+    void exit() throws IOException {
+        frame.put(BinaryFormat.OPCODE, BinaryFormat.EXIT);
+        writeFrame();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * @return the number of a ship, defining it if it is new
+     */
+    private int ship(String name) throws IOException {
+        if (name == null) {
+            return BinaryFormat.UNNAMED;
+        }
+        Integer ship = ships.get(name);
+        if (ship != null) {
+            return ship;
+        }
+        ship = ships.size();
+        ships.put(name, ship);
+        byte[] bytes = name.getBytes();
+        int offset = 0;
+        do {
+            // even an empty name needs a frame
+            int length = Math.min(bytes.length - offset, BinaryFormat.MAX_NAME_CHUNK);
+            frame.put(BinaryFormat.OPCODE, BinaryFormat.NAME);
+            frame.put(BinaryFormat.LENGTH, (byte) length);
+            frame.putInt(BinaryFormat.SHIP, ship);
+            frame.position(BinaryFormat.NAME_CHUNK);
+            frame.put(bytes, offset, length);
+            frame.position(0);
+            writeFrame();
+            offset += length;
+        } while (offset < bytes.length);
+        return ship;
+    }
+
+    private void writeFrame() throws IOException {
+        out.write(frame.array(), 0, BinaryFormat.FRAME_SIZE);
+        // unused fields must be zero
+        Arrays.fill(frame.array(), (byte) 0);
+    }
+}
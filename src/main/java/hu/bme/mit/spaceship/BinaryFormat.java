@@ -0,0 +1,56 @@
+package hu.bme.mit.spaceship;
+
+/**
+ * Layout of the binary command format.
+ *
+ * A binary script is a sequence of fixed-size big-endian frames, starting with a header frame.
+ * Every frame starts with its opcode:
+ * <pre>
+ * offset  HEADER    NAME          GT4500            TORPEDO        EXIT
+ * 0       opcode    opcode        opcode            opcode         opcode
+ * 1                 chunk length                    mode ordinal
+ * 4       magic     ship          ship              ship
+ * 8       version   name chunk    primary count     count
+ * 12                              secondary count
+ * 16                              primary rate
+ * 24                              secondary rate
+ * </pre>
+ * Ships are identified by numbers: {@link #UNNAMED} for the unnamed ship, otherwise the number
+ * assigned by a NAME frame. Names are assigned in order from 0; a name longer than a single
+ * frame is continued by further NAME frames with the same number. Unused bytes are zero.
+ */
+final class BinaryFormat {
+
+    static final int FRAME_SIZE = 32;
+
+    // "SHPB"
+    static final int MAGIC = 0x53485042;
+    static final short VERSION = 1;
+
+    static final byte HEADER = 0;
+    static final byte NAME = 1;
+    static final byte GT4500 = 2;
+    static final byte TORPEDO = 3;
+    static final byte EXIT = 4;
+
+    static final int UNNAMED = -1;
+
+    // offsets of the fields
+    static final int OPCODE = 0;
+    static final int LENGTH = 1;
+    static final int MODE = 1;
+    static final int MAGIC_FIELD = 4;
+    static final int SHIP = 4;
+    static final int VERSION_FIELD = 8;
+    static final int NAME_CHUNK = 8;
+    static final int PRIMARY_COUNT = 8;
+    static final int COUNT = 8;
+    static final int SECONDARY_COUNT = 12;
+    static final int PRIMARY_RATE = 16;
+    static final int SECONDARY_RATE = 24;
+
+    static final int MAX_NAME_CHUNK = FRAME_SIZE - NAME_CHUNK;
+
+    private BinaryFormat() {
+    }
+}
@@ -0,0 +1,110 @@
+package hu.bme.mit.spaceship;
+
+/**
+ * Samples binomially distributed numbers, ie. the number of successes of independent trials,
+ * without simulating the trials one by one.
+ *
+ * Small means (below {@link #BTRS_MIN_MEAN}) are sampled by adding geometrically distributed
+ * waiting times between successes, which takes one random number per success. Larger means use
+ * the transformed rejection method with squeeze (BTRS) of W. Hörmann, "The generation of binomial
+ * random variates" (1993), which takes about 2.3 random numbers per sample on average, however
+ * large the number of trials. Either way the expected cost is bounded by a constant.
+ */
+final class Binomial {
+
+    /** Mean above which the rejection method is used. */
+    static final double BTRS_MIN_MEAN = 10;
+
+    // log(k!) - Stirling's approximation of it, for k < 10
+    private static final double[] STIRLING_TAIL = {
+        0.0810614667953272, 0.0413406959554092, 0.0276779256849983, 0.02079067210376509,
+        0.0166446911898211, 0.0138761288230707, 0.0118967099458917, 0.0104112652619720,
+        0.00925546218271273, 0.00833056343336287
+    };
+
+    private Binomial() {
+    }
+
+    /**
+     * Sample the number of successes.
+     *
+     * @param trials Number of trials
+     * @param probability Probability of success of each trial (clamped to [0.0, 1.0])
+     * @param random Source of the random numbers
+     * @return a number between 0 and trials
+     */
+    static int sample(int trials, double probability, RandomSource random) {
+        if (trials <= 0 || !(probability > 0)) {
+            return 0;
+        }
+        if (probability >= 1) {
+            return trials;
+        }
+        // both methods need a probability of at most one half; count the failures otherwise
+        if (probability > 0.5) {
+            return trials - sample(trials, 1 - probability, random);
+        }
+        if (trials * probability < BTRS_MIN_MEAN) {
+            return sampleByWaitingTimes(trials, probability, random);
+        }
+        return sampleByRejection(trials, probability, random);
+    }
+
+    private static int sampleByWaitingTimes(int trials, double probability, RandomSource random) {
+        double logFailure = Math.log1p(-probability);
+        // trials up to and including the last success so far
+        double position = 0;
+        int successes = -1;
+        do {
+            // number of trials up to the next success
+            position += Math.max(1, Math.ceil(Math.log(1 - random.nextDouble()) / logFailure));
+            successes++;
+        } while (position <= trials);
+        return successes;
+    }
+
+    private static int sampleByRejection(int trials, double probability, RandomSource random) {
+        double deviation = Math.sqrt(trials * probability * (1 - probability));
+        double b = 1.15 + 2.53 * deviation;
+        double a = -0.0873 + 0.0248 * b + 0.01 * probability;
+        double c = trials * probability + 0.5;
+        double acceptAll = 0.92 - 4.2 / b;
+        double r = probability / (1 - probability);
+        double alpha = (2.83 + 5.1 / b) * deviation;
+        double mode = Math.floor((trials + 1) * probability);
+
+        while (true) {
+            double u = random.nextDouble() - 0.5;
+            double v = random.nextDouble();
+            double us = 0.5 - Math.abs(u);
+            double k = Math.floor((2 * a / us + b) * u + c);
+            if (k < 0 || k > trials) {
+                continue;
+            }
+            // squeeze: most samples are accepted without computing the density
+            if (us >= 0.07 && v <= acceptAll) {
+                return (int) k;
+            }
+            v = Math.log(v * alpha / (a / (us * us) + b));
+            double bound = (mode + 0.5) * Math.log((mode + 1) / (r * (trials - mode + 1)))
+                    + (trials + 1) * Math.log((trials - mode + 1) / (trials - k + 1))
+                    + (k + 0.5) * Math.log(r * (trials - k + 1) / (k + 1))
+                    + stirlingTail(mode) + stirlingTail(trials - mode)
+                    - stirlingTail(k) - stirlingTail(trials - k);
+            if (v <= bound) {
+                return (int) k;
+            }
+        }
+    }
+
+    /**
+     * @return the error of Stirling's approximation of log(k!)
+     */
+    private static double stirlingTail(double k) {
+        if (k < STIRLING_TAIL.length) {
+            return STIRLING_TAIL[(int) k];
+        }
+        double square = (k + 1) * (k + 1);
+        return (1.0 / 12 - (1.0 / 360 - 1.0 / 1260 / square) / square) / (k + 1);
+    }
+}
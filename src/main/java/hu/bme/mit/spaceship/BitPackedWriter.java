@@ -0,0 +1,170 @@
+package hu.bme.mit.spaceship;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Writer of a binary stream with one bit per result.
+ *
+ * The stream is a sequence of records, each starting with a tag byte:
+ * <ul>
+ * <li>{@link #HEADER}: the bytes <code>SHR</code> and the format version; every stream starts
+ * with a header, so concatenated streams are valid streams too.</li>
+ * <li>{@link #RESULTS}: the number of results as a variable-length integer (7 bits per byte,
+ * least significant group first), followed by the results, one bit each (1 for success), least
+ * significant bit first, padded to whole bytes.</li>
+ * <li>{@link #LINE}: the length of a message line (without line separator) as a variable-length
+ * integer, followed by the message in the platform charset.</li>
+ * </ul>
+ */
+final class BitPackedWriter extends ResponseWriter {
+
+    static final int HEADER = 0;
+    static final int RESULTS = 1;
+    static final int LINE = 2;
+
+    static final int VERSION = 1;
+
+    /** Maximum number of results in a single record. */
+    static final int MAX_RESULTS = 64 * 1024;
+
+    private static final byte[] HEADER_RECORD = {HEADER, 'S', 'H', 'R', VERSION};
+
+    private static final int MAX_VARINT_LENGTH = 5;
+
+    private final byte[] bits = new byte[MAX_RESULTS / 8];
+    private int results;
+
+    private final byte[] recordHeader = new byte[1 + MAX_VARINT_LENGTH];
+
+    BitPackedWriter(OutputStream out, int bufferSize) {
+        super(out, bufferSize);
+        write(HEADER_RECORD, HEADER_RECORD.length);
+    }
+
+    @Override
+    OutputFormat format() {
+        return OutputFormat.BITS;
+    }
+
+    @Override
+    void setAutoFlush(boolean autoFlush) {
+        // the stream is not meant to be read while it is written
+    }
+
+    @Override
+    void result(boolean success) {
+        if (success) {
+            bits[results >>> 3] |= 1 << (results & 7);
+        }
+        if (++results == MAX_RESULTS) {
+            endResults();
+        }
+    }
+
+    @Override
+    void println(String message) {
+        endResults();
+        byte[] bytes = message.getBytes();
+        writeRecordHeader(LINE, bytes.length);
+        write(bytes, bytes.length);
+    }
+
+    @Override
+    public void flush() {
+        endResults();
+        super.flush();
+    }
+
+    private void endResults() {
+        if (results == 0) {
+            return;
+        }
+        int length = (results + 7) >>> 3;
+        writeRecordHeader(RESULTS, results);
+        write(bits, length);
+        Arrays.fill(bits, 0, length, (byte) 0);
+        results = 0;
+    }
+
+    private void writeRecordHeader(int tag, int length) {
+        recordHeader[0] = (byte) tag;
+        int n = 1;
+        int value = length;
+        while ((value & ~0x7f) != 0) {
+            recordHeader[n++] = (byte) (value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        recordHeader[n++] = (byte) value;
+        write(recordHeader, n);
+    }
+
+    /**
+     * Convert a stream written in this format back to the text format.
+     *
+     * @param in The stream
+     * @param out Writer of the text format
+     * @throws IOException if the stream cannot be read or it is invalid
+     */
+    static void expand(InputStream in, ResponseWriter out) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        byte[] bytes = new byte[MAX_RESULTS / 8];
+        int tag;
+        while ((tag = data.read()) >= 0) {
+            switch (tag) {
+                case HEADER:
+                    data.readFully(bytes, 0, HEADER_RECORD.length - 1);
+                    if (!Arrays.equals(bytes, 0, HEADER_RECORD.length - 1,
+                            HEADER_RECORD, 1, HEADER_RECORD.length)) {
+                        throw new IOException("Invalid header or unsupported version");
+                    }
+                    break;
+                case RESULTS:
+                    int results = readVarint(data);
+                    if (results > MAX_RESULTS) {
+                        throw new IOException("Invalid number of results: " + results);
+                    }
+                    data.readFully(bytes, 0, (results + 7) >>> 3);
+                    for (int i = 0; i < results; i++) {
+                        out.result((bytes[i >>> 3] & 1 << (i & 7)) != 0);
+                    }
+                    break;
+                case LINE:
+                    int length = readVarint(data);
+                    if (length > bytes.length) {
+                        bytes = new byte[length];
+                    }
+                    data.readFully(bytes, 0, length);
+                    out.println(new String(bytes, 0, length, Charset.defaultCharset()));
+                    break;
+                default:
+                    throw new IOException("Invalid record: " + tag);
+            }
+        }
+        out.flush();
+    }
+
+    private static int readVarint(DataInputStream data) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 7 * MAX_VARINT_LENGTH; shift += 7) {
+            int b = data.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    break;
+                }
+                return value;
+            }
+        }
+        throw new IOException("Invalid length");
+    }
+}
@@ -0,0 +1,50 @@
+package hu.bme.mit.spaceship;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Helpers for using slices of byte buffers (eg. names or whole lines of the input) as keys of
+ * hash tables without decoding them to strings.
+ */
+final class ByteSlices {
+
+    private ByteSlices() {
+    }
+
+    /**
+     * @return the FNV-1a hash of a slice, with its high bits spread to the low ones
+     */
+    static int hash(ByteBuffer buffer, int from, int to) {
+        int hash = 0x811c9dc5;
+        for (int i = from; i < to; i++) {
+            hash = (hash ^ buffer.get(i)) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * @return whether a slice has the same content as an array
+     */
+    static boolean matches(byte[] bytes, ByteBuffer buffer, int from, int to) {
+        if (to - from != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (buffer.get(from + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return a copy of a slice
+     */
+    static byte[] copy(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(from + i);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,153 @@
+package hu.bme.mit.spaceship;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Bounded cache of compiled command lines.
+ *
+ * Lines are looked up by their raw bytes straight from the input buffer, so a repeated line is
+ * executed without tokenizing, parsing or even decoding it again. When the cache is full, the
+ * least recently used line is evicted.
+ *
+ * The cache is not thread-safe; each session uses its own.
+ */
+final class CommandCache {
+
+    static final int DEFAULT_CAPACITY = 1024;
+
+    private final int capacity;
+    private final Entry[] table;
+
+    // sentinel of the circular list of the entries, from the most to the least recently used
+    private final Entry head = new Entry(null, 0, null);
+
+    private int size;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param capacity Maximum number of lines cached
+     */
+    CommandCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.capacity = capacity;
+        // keep the load factor below 0.75
+        this.table = new Entry[Integer.highestOneBit(Math.min(capacity, 1 << 28) * 4 / 3) * 2];
+        head.before = head;
+        head.after = head;
+    }
+
+    /**
+     * Look up the compiled form of a line.
+     *
+     * @param buffer Buffer holding the line
+     * @param from Index of the first byte of the line
+     * @param to Index after the last byte of the line
+     * @return the compiled line, or null if it is not cached
+     */
+    Program get(ByteBuffer buffer, int from, int to) {
+        int hash = ByteSlices.hash(buffer, from, to);
+        for (Entry e = table[hash & (table.length - 1)]; e != null; e = e.next) {
+            if (e.hash == hash && ByteSlices.matches(e.line, buffer, from, to)) {
+                hits++;
+                unlink(e);
+                linkFirst(e);
+                return e.program;
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Cache the compiled form of a line that is not cached yet, evicting the least recently used
+     * line if the cache is full.
+     */
+    void put(ByteBuffer buffer, int from, int to, Program program) {
+        if (size == capacity) {
+            Entry eldest = head.before;
+            unlink(eldest);
+            int index = eldest.hash & (table.length - 1);
+            if (table[index] == eldest) {
+                table[index] = eldest.next;
+            } else {
+                Entry e = table[index];
+                while (e.next != eldest) {
+                    e = e.next;
+                }
+                e.next = eldest.next;
+            }
+            size--;
+            evictions++;
+        }
+
+        int hash = ByteSlices.hash(buffer, from, to);
+        int index = hash & (table.length - 1);
+        Entry entry = new Entry(ByteSlices.copy(buffer, from, to), hash, program);
+        entry.next = table[index];
+        table[index] = entry;
+        linkFirst(entry);
+        size++;
+    }
+
+    /**
+     * @return the number of cached lines
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of lookups that found the line
+     */
+    long hits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups that did not find the line
+     */
+    long misses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of lines evicted to make room for others
+     */
+    long evictions() {
+        return evictions;
+    }
+
+    private void linkFirst(Entry e) {
+        e.before = head;
+        e.after = head.after;
+        head.after.before = e;
+        head.after = e;
+    }
+
+    private static void unlink(Entry e) {
+        e.before.after = e.after;
+        e.after.before = e.before;
+    }
+
+    private static final class Entry {
+        final byte[] line;
+        final int hash;
+        final Program program;
+        // next entry in the same bucket
+        Entry next;
+        // neighbours in the recency list
+        Entry before;
+        Entry after;
+
+        Entry(byte[] line, int hash, Program program) {
+            this.line = line;
+            this.hash = hash;
+            this.program = program;
+        }
+    }
+}
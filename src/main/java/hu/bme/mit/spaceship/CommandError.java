@@ -0,0 +1,58 @@
+package hu.bme.mit.spaceship;
+
+/**
+ * Errors reported for invalid commands.
+ *
+ * Commands are validated without throwing exceptions: the compiler returns one of these codes and
+ * reports its message. Messages without an argument are built once; the others are built from a
+ * prefix and a suffix around the offending part of the command.
+ */
+enum CommandError {
+    NONE(""),
+    UNKNOWN_COMMAND("Unknown command: '", "'"),
+    GT4500_USAGE("usage: GT4500,[<NAME>,]<PRI_CNT>,<PRI_FAIL_RATE>,<SEC_CNT>,<SEC_FAIL_RATE>"),
+    TORPEDO_USAGE("usage: TORPEDO,[<NAME>,]<SINGLE|ALL|SALVO>[,<COUNT>]"),
+    REPEAT_USAGE("usage: REPEAT,<COUNT>[,SUMMARY]"),
+    SUBMIT_USAGE("usage: SUBMIT,SCRIPT,<FILE> or SUBMIT,FIRE,<RUNS>,<PRI_CNT>,<PRI_FAIL_RATE>,"
+            + "<SEC_CNT>,<SEC_FAIL_RATE>,<SINGLE|ALL|SALVO>"),
+    POLL_USAGE("usage: POLL[,<JOB>]"),
+    CANCEL_USAGE("usage: CANCEL,<JOB>"),
+    INVALID_NUMBER("Invalid numerical arguments passed: ", ""),
+    INVALID_COUNT("Invalid count: ", ""),
+    UNKNOWN_FIRING_MODE("Unknown firing mode: '", "'"),
+    UNKNOWN_REPEAT_MODE("Unknown repeat mode: '", "'"),
+    END_WITHOUT_REPEAT("END without REPEAT"),
+    MISSING_END("Missing END of REPEAT block"),
+    NO_SHIP("No ship has been initialized"),
+    UNKNOWN_SHIP("Unknown ship: '", "'"),
+    UNKNOWN_JOB("Unknown job: ", ""),
+    JOBS_DISABLED("Jobs are not available in this session"),
+    SCRIPT_JOBS_DISABLED("Script jobs cannot be submitted remotely"),
+    COMMAND_LIMIT("Command limit exceeded");
+
+    private final String prefix;
+    private final String suffix;
+
+    CommandError(String message) {
+        this(message, null);
+    }
+
+    CommandError(String prefix, String suffix) {
+        this.prefix = prefix;
+        this.suffix = suffix;
+    }
+
+    /**
+     * @return the message of an error without argument
+     */
+    String message() {
+        return prefix;
+    }
+
+    /**
+     * @return the message of an error with an argument
+     */
+    String message(String argument) {
+        return prefix + argument + suffix;
+    }
+}
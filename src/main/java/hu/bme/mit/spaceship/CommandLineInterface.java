@@ -1,171 +1,449 @@
 package hu.bme.mit.spaceship;
 
+import java.io.BufferedInputStream;
+import java.io.Flushable;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
-import java.util.Map;
-import java.util.NoSuchElementException;
-import java.util.Scanner;
-import java.util.function.BiFunction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executors;
 
 /**
  * Minimal command line interface (CLI) to initialize and use spaceships.
  */
 public class CommandLineInterface {
 
-    private static Map<String, Handler> handlers = Map.of(
-        "HELP", CommandLineInterface::handleHelp,
-        "GT4500", CommandLineInterface::handleGT4500,
-        "TORPEDO", CommandLineInterface::handleTorpedo,
-        "EXIT", CommandLineInterface::handleExit
-    );
-
     public static void main(String[] args) {
-        run(System.in, System.out, new OptionalOutput(System.err));
-    }
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getLocalizedMessage());
+            System.err.println(Options.USAGE);
+            System.exit(2);
+            return;
+        }
 
-    /**
-     * Read and handle commands from an input stream, writing output to another stream.
-     * 
-     * The optional err stream receives output only useful in an interactive session.
-     * 
-     * @param in The input stream to read commands from
-     * @param out The output stream to write results to
-     * @param err Optional stream to write interactive session feedback to
-     */
-    public static void run(InputStream in, OutputStream out, OptionalOutput err) {
-        Context ctx = new Context();
-        ctx.out = new PrintStream(out);
+        if (options.warmUp && !options.help) {
+            warmUp(options);
+        }
 
-        err.println("Welcome to the console interface.  Available commands: "
-                + handlers.keySet().toString());
-        try (Scanner scanner = new Scanner(in)) {
-            CommandResult result = CommandResult.CONTINUE;
-            do {
-                err.print("> ");
-                try {
-                    result = handle(ctx, scanner.nextLine());
-                } catch (NoSuchElementException e) {
-                    result = CommandResult.EXIT;
+        if (options.help) {
+            System.out.println(Options.USAGE);
+        } else if (options.listen != null) {
+            try {
+                CommandServer server = new CommandServer(options.listen, Math.max(options.jobs, 0),
+                        options.cacheSize, seeds(options));
+                server.start();
+                System.err.println("Listening on " + server.address());
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Error: " + e.getLocalizedMessage());
+                System.exit(1);
+            }
+        } else if (options.http != null) {
+            int threads =
+                    options.jobs > 0 ? options.jobs : Runtime.getRuntime().availableProcessors();
+            try {
+                HttpCommandServer server = new HttpCommandServer(options.http,
+                        Executors.newFixedThreadPool(threads), options.cacheSize,
+                        seeds(options));
+                server.start();
+                System.err.println("Listening on http://" + server.address().getHostString() + ":"
+                        + server.address().getPort() + HttpCommandServer.PATH);
+            } catch (IOException e) {
+                System.err.println("Error: " + e.getLocalizedMessage());
+                System.exit(1);
+            }
+        } else if (options.ipc != null) {
+            try (SharedMemoryChannel channel = SharedMemoryChannel.create(options.ipc,
+                    SharedMemoryChannel.DEFAULT_CAPACITY)) {
+                System.err.println("Waiting for commands in " + options.ipc);
+                CommandCache cache =
+                        options.cacheSize > 0 ? new CommandCache(options.cacheSize) : null;
+                RandomSource seeds = seeds(options);
+                channel.serve(newContext(null, seeds), new Interpreter(cache), options.wait);
+            } catch (IOException e) {
+                System.err.println("Error: " + e.getLocalizedMessage());
+                System.exit(1);
+            }
+        } else if (options.replay != null) {
+            try {
+                replay(options);
+            } catch (IOException e) {
+                System.err.println("Error: " + e.getLocalizedMessage());
+                System.exit(1);
+            }
+        } else if (options.expand != null) {
+            try {
+                expand(options);
+            } catch (IOException e) {
+                System.err.println("Error: " + e.getLocalizedMessage());
+                System.exit(1);
+            }
+        } else if (options.toBinary != null) {
+            try {
+                convertToBinary(options);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Error: " + e.getLocalizedMessage());
+                System.exit(1);
+            }
+        } else if (options.jobs >= 0) {
+            try {
+                ParallelRunner runner =
+                        new ParallelRunner(options.jobs, options.outputDir, seeds(options),
+                                options.cacheSize);
+                long start = System.nanoTime();
+                List<ParallelRunner.Result> results = runner.run(options.resolveScripts());
+                long wallNanos = System.nanoTime() - start;
+                if (!ParallelRunner.printSummary(results, wallNanos, System.err)) {
+                    System.exit(1);
                 }
-            } while (result == CommandResult.CONTINUE);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Error: " + e.getLocalizedMessage());
+                System.exit(1);
+            }
+        } else if (options.isInteractive() && options.output == null && options.journal == null) {
+            run(System.in, System.out, new OptionalOutput(System.err));
+        } else {
+            try {
+                runBatch(options);
+            } catch (IOException e) {
+                System.err.println("Error: " + e.getLocalizedMessage());
+                System.exit(1);
+            }
         }
     }
 
-    public static void run(InputStream in, OutputStream out) {
-        run(in, out, new OptionalOutput(null));
+    /**
+     * @return the source of the seeds given in the options, or null to use unseeded sources
+     */
+    private static RandomSource seeds(Options options) {
+        return options.seed == null ? null : RandomSource.seeded(options.seed);
     }
 
     /**
-     * Handle a command.
-     * 
-     * @param ctx The current CLI context
-     * @param command The command as a list of comma-separated tokens
-     * @return whether execution should continue
+     * Warm up the JIT compiler with synthetic commands and report how long it took.
+     */
+    private static void warmUp(Options options) {
+        WarmUp.Result result = WarmUp.run(options.format, WarmUp.DEFAULT_MAX_NANOS);
+        System.err.printf("Warmed up in %.0f ms (%d rounds, %s, %.0f ns/command)%n",
+                result.nanos / 1e6, result.rounds,
+                result.settled ? "settled" : "time limit reached", result.nanosPerCommand);
+    }
+
+    /**
+     * Run the scripts given in the options (or the standard input) without any interactive
+     * feedback, then report the number of executed commands and the throughput.
      */
-    private static CommandResult handle(Context ctx, String command) {
-        if (command.stripLeading().startsWith("#")) {
-            return CommandResult.CONTINUE;
+    private static void runBatch(Options options) throws IOException {
+        OutputStream out = options.output == null
+                ? System.out
+                : Files.newOutputStream(options.output);
+        OptionalOutput err = new OptionalOutput(options.isInteractive() ? System.err : null);
+        // journaled sessions are only reproducible if their ships are seeded
+        RandomSource seeds = seeds(options);
+        if (seeds == null && options.journal != null) {
+            seeds = RandomSource.create();
+        }
+        CommandCache cache = options.cacheSize > 0 ? new CommandCache(options.cacheSize) : null;
+        Interpreter interpreter = new Interpreter(cache);
+        long start = System.nanoTime();
+        long commands = 0;
+        Journal journal = null;
+        try {
+            ResponseWriter writer = options.format.writer(out);
+            if (options.journal != null) {
+                journal = Journal.open(options.journal);
+            }
+            if (options.scripts.isEmpty()) {
+                if (options.binary) {
+                    commands = runBinary(newContext(writer, seeds), System.in);
+                } else {
+                    // only interactive sessions need the results before blocking for input;
+                    // flushing otherwise would end the runs and records of the compact formats
+                    Flushable beforeRead = options.isInteractive() ? writer : () -> {};
+                    try (LineReader lines = LineReader.of(System.in, beforeRead)) {
+                        commands = runText(options, lines, interpreter, writer, seeds, journal,
+                                err);
+                    }
+                }
+            }
+            for (Path script : options.resolveScripts()) {
+                if (options.binary) {
+                    try (InputStream in = Files.newInputStream(script)) {
+                        commands += runBinary(newContext(writer, seeds), in);
+                    }
+                } else {
+                    try (LineReader lines = LineReader.of(script)) {
+                        commands += runText(options, lines, interpreter, writer, seeds, journal,
+                                err);
+                    }
+                }
+            }
+        } finally {
+            try {
+                if (journal != null) {
+                    journal.close();
+                }
+            } finally {
+                if (out != System.out) {
+                    out.close();
+                }
+            }
         }
 
-        command = command.replaceAll("#.*$", "").strip();
-        if (command.isEmpty()) {
-            return CommandResult.CONTINUE;
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("Executed %d commands in %.3f s (%.0f commands/s)%n", commands,
+                seconds, commands / seconds);
+        if (cache != null && cache.hits() + cache.misses() > 0) {
+            System.err.printf("Command cache: %d hits, %d misses (%.1f%% hit rate), "
+                    + "%d evictions%n", cache.hits(), cache.misses(),
+                    100.0 * cache.hits() / (cache.hits() + cache.misses()), cache.evictions());
         }
+        if (journal != null) {
+            System.err.printf("Journal: %d records in %d commits%n", journal.records(),
+                    journal.commits());
+        }
+    }
 
-        String[] parts = command.split(",");
-        String mainCommand = parts[0].toUpperCase();
+    /**
+     * Replay the sessions recorded in a journal, then report the number of executed commands.
+     */
+    private static void replay(Options options) throws IOException {
+        OutputStream out = options.output == null
+                ? System.out
+                : Files.newOutputStream(options.output);
+        long commands;
+        try (LineReader journal = LineReader.of(options.replay)) {
+            commands = Journal.replay(journal, options.format.writer(out));
+        } finally {
+            if (out != System.out) {
+                out.close();
+            }
+        }
+        System.err.printf("Replayed %d commands%n", commands);
+    }
 
-        CommandResult result = CommandResult.CONTINUE;
-        try {
-            Handler handler = handlers.get(mainCommand);
-            if (handler == null) {
-                ctx.out.printf("Unknown command: '%s'%n", mainCommand);
+    /**
+     * Convert results written in a compact format back to the text format.
+     */
+    private static void expand(Options options) throws IOException {
+        OutputStream out = options.output == null
+                ? System.out
+                : Files.newOutputStream(options.output);
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(options.expand))) {
+            ResponseWriter writer = new ResponseWriter(out);
+            // binary results start with a header record, text never contains zero bytes
+            in.mark(1);
+            boolean binary = in.read() == BitPackedWriter.HEADER;
+            in.reset();
+            if (binary) {
+                BitPackedWriter.expand(in, writer);
             } else {
-                result = handler.apply(ctx, parts);
+                try (LineReader lines = LineReader.of(in, () -> {})) {
+                    RunLengthWriter.expand(lines, writer);
+                }
+            }
+            if (writer.checkError()) {
+                throw new IOException("Failed to write the results");
+            }
+        } finally {
+            if (out != System.out) {
+                out.close();
             }
-        } catch (IllegalArgumentException e) {
-            ctx.out.println(e.getLocalizedMessage());
         }
-
-        return result;
     }
 
     /**
-     * Handle the HELP command.
+     * Run a text script, either compiled, pipelined, interpreted or journaled, as given in the
+     * options.
+     *
+     * @return the number of commands executed
      */
-    private static CommandResult handleHelp(Context ctx, String[] params) {
-        ctx.out.println("Available commands: " + handlers.keySet());
-        ctx.out.println("Generally, commands receive parameters; refer to the documentation");
-        ctx.out.println(
-                "Before firing torpedoes using the TORPEDO command, you must initialize a ship (eg. a GT4500) using its name as a command");
-        return CommandResult.CONTINUE;
+    private static long runText(Options options, LineReader lines, Interpreter interpreter,
+            ResponseWriter writer, RandomSource seeds, Journal journal, OptionalOutput err)
+            throws IOException {
+        if (journal != null) {
+            long seed = seeds.nextLong();
+            journal.beginSession(seed);
+            return run(Journal.newContext(writer, seed), journal.recording(lines), interpreter,
+                    err);
+        }
+        if (options.runs > 0) {
+            return runCompiled(ScriptCompiler.compile(lines), options.runs, writer, seeds);
+        }
+        if (options.pipeline) {
+            return new PipelinedRunner(options.wait).run(newContext(writer, seeds), lines);
+        }
+        return run(newContext(writer, seeds), lines, interpreter, err);
     }
 
     /**
-     * Handle the GT4500 command.
+     * Convert the text scripts given in the options (or the standard input) to a binary script.
      */
-    private static CommandResult handleGT4500(Context ctx, String[] params) {
-        if (params.length != 5) {
-            throw new IllegalArgumentException(
-                    "usage: GT4500,<PRI_CNT>,<PRI_FAIL_RATE>,<SEC_CNT>,<SEC_FAIL_RATE>");
+    private static void convertToBinary(Options options) throws IOException {
+        try (BinaryEncoder encoder =
+                new BinaryEncoder(Files.newOutputStream(options.toBinary))) {
+            if (options.scripts.isEmpty()) {
+                try (LineReader lines = LineReader.of(System.in, () -> {})) {
+                    BinaryEncoder.convert(lines, encoder);
+                }
+            }
+            for (Path script : options.resolveScripts()) {
+                try (LineReader lines = LineReader.of(script)) {
+                    BinaryEncoder.convert(lines, encoder);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(script + ", " + e.getMessage(), e);
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // do not leave a truncated binary script behind
+            Files.deleteIfExists(options.toBinary);
+            throw e;
         }
+    }
 
-        int primaryCount;
-        int secondaryCount;
-        double primaryFailRate;
-        double secondaryFailRate;
+    /**
+     * Execute a binary script in batches of frames.
+     *
+     * @return the number of commands executed
+     */
+    private static long runBinary(Context ctx, InputStream in) throws IOException {
+        BinaryDecoder decoder = new BinaryDecoder(in);
+        Program program = new Program();
         try {
-            primaryCount = Integer.parseInt(params[1]);
-            primaryFailRate = Double.parseDouble(params[2]);
-            secondaryCount = Integer.parseInt(params[3]);
-            secondaryFailRate = Double.parseDouble(params[4]);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException(
-                    "Invalid numerical arguments passed: " + e.getLocalizedMessage(), e);
+            while (decoder.next(program)) {
+                if (program.execute(ctx) == CommandResult.EXIT) {
+                    break;
+                }
+                program.clear();
+            }
+        } finally {
+            ctx.out.flush();
         }
-
-        ctx.ship = new GT4500(primaryCount, primaryFailRate, secondaryCount, secondaryFailRate);
-        ctx.out.println("SUCCESS");
-        return CommandResult.CONTINUE;
+        return ctx.commands;
     }
 
     /**
-     * Handle the TORPEDO command.
+     * Execute a compiled script repeatedly, each time in a fresh context.
+     *
+     * @param seeds Source of the seeds of the runs, or null to use unseeded generators
+     * @return the number of commands executed
      */
-    private static CommandResult handleTorpedo(Context ctx, String[] params) {
-        if (ctx.ship == null) {
-            throw new IllegalArgumentException("No ship has been initialized");
+    private static long runCompiled(Program program, int runs, ResponseWriter writer,
+            RandomSource seeds) {
+        long commands = 0;
+        for (int i = 0; i < runs; i++) {
+            Context ctx = newContext(writer, seeds);
+            program.execute(ctx);
+            commands += ctx.commands;
         }
-        if (params.length != 2) {
-            throw new IllegalArgumentException("usage: TORPEDO,<SINGLE|ALL>");
+        writer.flush();
+        return commands;
+    }
+
+    private static Context newContext(ResponseWriter writer, RandomSource seeds) {
+        Context ctx = new Context(writer);
+        if (seeds != null) {
+            ctx.seeds = seeds.split();
         }
+        return ctx;
+    }
 
-        FiringMode firingMode;
-        try {
-            firingMode = FiringMode.valueOf(params[1].toUpperCase());
-        } catch (IllegalArgumentException e) {
-            throw new IllegalArgumentException(
-                    String.format("Unknown firing mode: '%s'", params[1].toUpperCase()), e);
+    /**
+     * Read and handle commands from an input stream, writing output to another stream.
+     * 
+     * The optional err stream receives output only useful in an interactive session.
+     * 
+     * @param in The input stream to read commands from
+     * @param out The output stream to write results to
+     * @param err Optional stream to write interactive session feedback to
+     */
+    public static void run(InputStream in, OutputStream out, OptionalOutput err) {
+        Context ctx = new Context(new ResponseWriter(out));
+        // responses must show up immediately in an interactive session
+        ctx.out.setAutoFlush(err.isEnabled());
+
+        try (LineReader lines = LineReader.of(in, ctx.out)) {
+            run(ctx, lines, new Interpreter(), err);
+        } catch (IOException e) {
+            // treat read errors as the end of the input
         }
-        boolean success = ctx.ship.fireTorpedo(firingMode);
-        ctx.out.println(success ? "SUCCESS" : "FAIL");
-        return CommandResult.CONTINUE;
+    }
+
+    public static void run(InputStream in, OutputStream out) {
+        run(in, out, new OptionalOutput(null));
     }
 
     /**
-     * Handle the EXIT command.
+     * Read and handle commands from a script file, writing output to a stream.
+     *
+     * The file is memory-mapped instead of being read through a stream.
+     *
+     * @param script The script file to read commands from
+     * @param out The output stream to write results to
+     * @throws IOException if the script cannot be read
      */
-    private static CommandResult handleExit(Context ctx, String[] params) {
-        return CommandResult.EXIT;
+    public static void run(Path script, OutputStream out) throws IOException {
+        runScript(script, out, null, CommandCache.DEFAULT_CAPACITY);
     }
 
-    private static class Context {
-        SpaceShip ship;
-        PrintStream out;
+    /**
+     * Run a script file in a fresh context.
+     *
+     * @param seeds Source split into the sources of the ships, or null to use unseeded sources
+     * @param cacheSize Number of compiled lines cached, or 0 to disable caching
+     * @return the number of commands handled
+     */
+    static long runScript(Path script, OutputStream out, RandomSource seeds, int cacheSize)
+            throws IOException {
+        Context ctx = new Context(new ResponseWriter(out));
+        ctx.seeds = seeds;
+
+        try (LineReader lines = LineReader.of(script)) {
+            return runSession(ctx, lines,
+                    new Interpreter(cacheSize > 0 ? new CommandCache(cacheSize) : null));
+        }
     }
 
-    private static interface Handler extends BiFunction<Context, String[], CommandResult> {}
+    /**
+     * Handle lines non-interactively until an EXIT command or the end of the input.
+     *
+     * @return the number of commands handled
+     */
+    static long runSession(Context ctx, LineReader lines, Interpreter interpreter)
+            throws IOException {
+        return run(ctx, lines, interpreter, new OptionalOutput(null));
+    }
+
+    /**
+     * Handle lines until an EXIT command or the end of the input.
+     *
+     * @return the number of commands handled (not counting empty lines and comments)
+     */
+    private static long run(Context ctx, LineReader lines, Interpreter interpreter,
+            OptionalOutput err) throws IOException {
+        err.println("Welcome to the console interface.  Available commands: "
+                + ScriptCompiler.commandNames().toString());
+        try {
+            CommandResult result = CommandResult.CONTINUE;
+            do {
+                err.print("> ");
+                if (lines.next()) {
+                    result = interpreter.handle(ctx, lines.buffer(), lines.start(), lines.end());
+                } else {
+                    interpreter.finish(ctx);
+                    result = CommandResult.EXIT;
+                }
+            } while (result == CommandResult.CONTINUE);
+        } finally {
+            ctx.out.flush();
+        }
+        return ctx.commands;
+    }
 
     /**
      * Rudimentary PrintStream-like interface that silently ignores if the underlying PrintStream is
@@ -181,6 +459,10 @@ public class CommandLineInterface {
             }
         }
 
+        public boolean isEnabled() {
+            return out != null;
+        }
+
         public void print(String message) {
             if (out != null) {
                 out.print(message);
@@ -191,11 +473,4 @@ public class CommandLineInterface {
             print(message + "\n");
         }
     }
-
-    /**
-     * More readable enumeration for command results.
-     */
-    private enum CommandResult {
-        CONTINUE, EXIT
-    }
 }
@@ -0,0 +1,10 @@
+package hu.bme.mit.spaceship;
+
+/**
+ * More readable enumeration for command results.
+ */
+enum CommandResult {
+    CONTINUE, EXIT,
+    // only inside a program: the command limit of the context has been reached
+    ABORT
+}
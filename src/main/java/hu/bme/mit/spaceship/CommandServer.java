@@ -0,0 +1,460 @@
+package hu.bme.mit.spaceship;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Serves the command protocol over TCP.
+ *
+ * Each connection is a separate session with its own context, so it behaves like a
+ * non-interactive run of the {@link CommandLineInterface}: the client sends lines of commands
+ * and receives their results in order. Clients may pipeline commands, ie. send many lines without
+ * waiting for the results. An EXIT command or the end of the input closes the connection.
+ *
+ * Connections are multiplexed by a few selector threads; a connection is always served by the
+ * same thread. Lines are executed straight from the receive buffer of the connection, and the
+ * results are only written to the socket when all the complete lines received so far have been
+ * executed. While a connection has unsent results, no more lines are read from it, and once
+ * {@link #MAX_PENDING_OUTPUT} bytes of them are waiting, no more lines are executed either. Each
+ * line may execute at most {@link #MAX_COMMANDS_PER_LINE} commands, so a single connection holds
+ * up the others of its thread only briefly.
+ */
+final class CommandServer implements Closeable {
+
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_LINE_LENGTH = 1024 * 1024;
+    // results of a connection waiting to be sent above which no more lines are executed
+    private static final int MAX_PENDING_OUTPUT = 64 * 1024;
+    // commands a single line may execute (counting each torpedo fired and each repetition)
+    static final int MAX_COMMANDS_PER_LINE = 100_000;
+
+    private final ServerSocketChannel server;
+    private final Worker[] workers;
+    private final int cacheSize;
+    private final RandomSource seeds;
+
+    // worker of the next accepted connection
+    private int next;
+
+    private boolean started;
+    private volatile boolean closed;
+
+    /**
+     * Bind the server; connections are only accepted once it is started.
+     *
+     * @param address Address to listen on
+     * @param threads Number of selector threads, or 0 for one per available processor
+     * @param cacheSize Number of compiled lines cached by each thread, or 0 to disable caching
+     * @param seeds Source of the seeds of the sessions, or null to use unseeded generators
+     */
+    CommandServer(InetSocketAddress address, int threads, int cacheSize, RandomSource seeds)
+            throws IOException {
+        this.server = ServerSocketChannel.open();
+        this.workers =
+                new Worker[threads > 0 ? threads : Runtime.getRuntime().availableProcessors()];
+        this.cacheSize = cacheSize;
+        this.seeds = seeds;
+        try {
+            server.bind(address);
+            server.configureBlocking(false);
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = new Worker(i);
+            }
+            server.register(workers[0].selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the address the server listens on (eg. to find out the port chosen by the system)
+     */
+    InetSocketAddress address() throws IOException {
+        return (InetSocketAddress) server.getLocalAddress();
+    }
+
+    /**
+     * Start the selector threads.
+     */
+    synchronized void start() {
+        if (!closed && !started) {
+            started = true;
+            for (Worker worker : workers) {
+                worker.start();
+            }
+        }
+    }
+
+    /**
+     * Stop accepting connections, close the open ones and wait for the selector threads to stop.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        server.close();
+        for (Worker worker : workers) {
+            if (worker == null) {
+                continue;
+            }
+            if (started) {
+                worker.selector.wakeup();
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            } else {
+                worker.selector.close();
+            }
+        }
+    }
+
+    /**
+     * Accept the pending connections, handing them to the workers in turn.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Worker worker = workers[next];
+            next = (next + 1) % workers.length;
+            worker.add(channel);
+        }
+    }
+
+    /**
+     * Selector thread serving a share of the connections.
+     */
+    private final class Worker extends Thread {
+
+        private final Selector selector = Selector.open();
+        private final Queue<SocketChannel> added = new ConcurrentLinkedQueue<>();
+
+        // compiled lines shared by the connections of the thread
+        private final CommandCache cache =
+                cacheSize > 0 ? new CommandCache(cacheSize) : null;
+
+        Worker(int index) throws IOException {
+            super("command-server-" + index);
+        }
+
+        void add(SocketChannel channel) {
+            added.add(channel);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    selector.select();
+                    registerAdded();
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        handle(key);
+                    }
+                    selector.selectedKeys().clear();
+                }
+            } catch (IOException e) {
+                System.err.println("Server error: " + e.getLocalizedMessage());
+            } finally {
+                closeAll();
+            }
+        }
+
+        private void registerAdded() {
+            SocketChannel channel;
+            while ((channel = added.poll()) != null) {
+                Context ctx = new Context(null);
+                // clients must not read the files of the server
+                ctx.scriptJobsEnabled = false;
+                if (seeds != null) {
+                    // the selector threads share the seeds
+                    synchronized (seeds) {
+                        ctx.seeds = seeds.split();
+                    }
+                }
+                Connection connection = new Connection(channel, ctx, new Interpreter(cache));
+                try {
+                    connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                } catch (IOException e) {
+                    // the client went away
+                    closeQuietly(channel);
+                }
+            }
+        }
+
+        private void handle(SelectionKey key) {
+            if (!key.isValid()) {
+                return;
+            }
+            if (key.isAcceptable()) {
+                try {
+                    accept();
+                } catch (IOException e) {
+                    if (!closed) {
+                        System.err.println("Failed to accept connection: "
+                                + e.getLocalizedMessage());
+                    }
+                }
+                return;
+            }
+            Connection connection = (Connection) key.attachment();
+            try {
+                if (key.isReadable()) {
+                    connection.read();
+                } else if (key.isWritable()) {
+                    connection.writable();
+                }
+            } catch (IOException e) {
+                // the client went away
+                connection.close();
+            }
+        }
+
+        private void closeAll() {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection) {
+                    ((Connection) key.attachment()).close();
+                } else {
+                    closeQuietly(key.channel());
+                }
+            }
+            SocketChannel channel;
+            while ((channel = added.poll()) != null) {
+                closeQuietly(channel);
+            }
+            closeQuietly(selector);
+        }
+    }
+
+    /**
+     * State of a single session.
+     */
+    private static final class Connection {
+
+        private final SocketChannel channel;
+        private final Context ctx;
+        private final Interpreter interpreter;
+        private final PendingOutput output = new PendingOutput();
+        private SelectionKey key;
+
+        private ByteBuffer input = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+        // whether the session has ended and the connection is closed once the results are sent
+        private boolean closing;
+        // whether the last line was terminated by \r, which may be followed by \n
+        private boolean skipLineFeed;
+        // whether the client has closed its side of the connection
+        private boolean inputEnded;
+        // whether complete lines are held back until the pending results are sent
+        private boolean paused;
+
+        Connection(SocketChannel channel, Context ctx, Interpreter interpreter) {
+            this.channel = channel;
+            this.ctx = ctx;
+            this.ctx.out = new ResponseWriter(output, INITIAL_BUFFER_SIZE);
+            this.interpreter = interpreter;
+        }
+
+        /**
+         * Read the available data and execute the complete lines in it.
+         */
+        void read() throws IOException {
+            if (!input.hasRemaining()) {
+                if (input.capacity() >= MAX_LINE_LENGTH) {
+                    ctx.out.println("Line longer than " + MAX_LINE_LENGTH + " bytes");
+                    endSession();
+                    write();
+                    return;
+                }
+                ByteBuffer grown = ByteBuffer.allocate(input.capacity() * 2);
+                input.flip();
+                grown.put(input);
+                input = grown;
+            }
+
+            if (channel.read(input) < 0) {
+                inputEnded = true;
+            }
+            executeLines();
+            write();
+        }
+
+        /**
+         * Send more of the pending results, then go on executing the lines held back by them.
+         */
+        void writable() throws IOException {
+            if (paused && output.isEmpty()) {
+                executeLines();
+            }
+            write();
+        }
+
+        /**
+         * Send the pending results; reading resumes once all of them are sent.
+         */
+        void write() throws IOException {
+            if (!output.writeTo(channel) || paused) {
+                // lines held back are executed on the next writable event, after the other
+                // connections of the thread have had their turn
+                key.interestOps(SelectionKey.OP_WRITE);
+            } else if (closing) {
+                close();
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        void close() {
+            key.cancel();
+            closeQuietly(channel);
+            if (ctx.jobs != null) {
+                // nobody is left to poll them
+                ctx.jobs.cancelAll();
+            }
+        }
+
+        /**
+         * Execute the complete lines in the input buffer, keeping the incomplete last line. Lines
+         * are terminated like in a {@link LineReader}.
+         *
+         * Execution stops early once {@link #MAX_PENDING_OUTPUT} bytes of results are waiting to be
+         * sent; the remaining lines are kept in the buffer until the results are sent.
+         */
+        private void executeLines() {
+            int start = 0;
+            int position = input.position();
+            paused = false;
+            for (int i = 0; i < position && !closing; i++) {
+                byte b = input.get(i);
+                if (skipLineFeed) {
+                    skipLineFeed = false;
+                    if (b == '\n') {
+                        start = i + 1;
+                        continue;
+                    }
+                }
+                if (b == '\n' || b == '\r') {
+                    execute(start, i);
+                    start = i + 1;
+                    skipLineFeed = b == '\r';
+                    if (output.size() > MAX_PENDING_OUTPUT) {
+                        paused = true;
+                        break;
+                    }
+                }
+            }
+            if (closing) {
+                return;
+            }
+            // move the remaining lines to the start of the buffer
+            input.limit(position).position(start);
+            input.compact();
+            if (!paused && inputEnded) {
+                // the last line may lack a line terminator
+                if (input.position() > 0) {
+                    execute(0, input.position());
+                }
+                endSession();
+            }
+            ctx.out.flush();
+        }
+
+        private void execute(int from, int to) {
+            ctx.commandLimit = ctx.commands + MAX_COMMANDS_PER_LINE;
+            if (interpreter.handle(ctx, input, from, to) == CommandResult.EXIT) {
+                endSession();
+            }
+        }
+
+        private void endSession() {
+            if (!closing) {
+                closing = true;
+                ctx.commandLimit = ctx.commands + MAX_COMMANDS_PER_LINE;
+                interpreter.finish(ctx);
+                ctx.out.flush();
+            }
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // closing anyway
+        }
+    }
+
+    /**
+     * Growable buffer of the results not sent yet.
+     */
+    private static final class PendingOutput extends OutputStream {
+
+        private byte[] bytes = new byte[INITIAL_BUFFER_SIZE];
+        private int start;
+        private int end;
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(1);
+            bytes[end++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensureCapacity(len);
+            System.arraycopy(b, off, bytes, end, len);
+            end += len;
+        }
+
+        int size() {
+            return end - start;
+        }
+
+        boolean isEmpty() {
+            return start == end;
+        }
+
+        /**
+         * Write as much of the pending data to a channel as it accepts without blocking.
+         *
+         * @return whether all the data has been written
+         */
+        boolean writeTo(SocketChannel channel) throws IOException {
+            if (start < end) {
+                start += channel.write(ByteBuffer.wrap(bytes, start, end - start));
+            }
+            if (start == end) {
+                start = 0;
+                end = 0;
+                return true;
+            }
+            return false;
+        }
+
+        private void ensureCapacity(int length) {
+            if (end + length <= bytes.length) {
+                return;
+            }
+            int pending = end - start;
+            byte[] target = pending + length <= bytes.length
+                    ? bytes
+                    : new byte[Math.max(bytes.length * 2, pending + length)];
+            System.arraycopy(bytes, start, target, 0, pending);
+            bytes = target;
+            start = 0;
+            end = pending;
+        }
+    }
+}
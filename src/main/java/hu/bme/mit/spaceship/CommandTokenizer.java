@@ -0,0 +1,442 @@
+package hu.bme.mit.spaceship;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Single-pass tokenizer for command lines.
+ *
+ * The tokenizer works on a slice of a (reusable) byte buffer and only records the boundaries of
+ * the comma-separated tokens, so tokenizing a line and parsing its numerical arguments does not
+ * allocate. It follows the rules of the original string based parser:
+ * <ul>
+ * <li>lines whose first non-whitespace character is <code>#</code> are comments
+ * <li>anything after a <code>#</code> is ignored, the rest is stripped of whitespace
+ * <li>tokens are separated by commas, trailing empty tokens are dropped
+ * </ul>
+ *
+ * Only accessors producing <code>String</code>s allocate; they are meant for error messages.
+ * Invalid numbers are reported without throwing exceptions, so invalid lines are handled as fast
+ * as valid ones.
+ */
+final class CommandTokenizer {
+
+    /** Maximum number of tokens whose boundaries are recorded. */
+    static final int MAX_TOKENS = 8;
+
+    // largest mantissa that can be represented exactly by a double
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final byte[] NAN = "NaN".getBytes();
+    private static final byte[] INFINITY = "Infinity".getBytes();
+
+    private ByteBuffer buffer;
+
+    private final int[] starts = new int[MAX_TOKENS];
+    private final int[] ends = new int[MAX_TOKENS];
+
+    private int count;
+
+    // value of the last number parsed successfully
+    private int intValue;
+    private double doubleValue;
+
+    // boundaries of the last invalid number and the fixed message of its error, if any
+    private int invalidStart;
+    private int invalidEnd;
+    private String invalidMessage;
+
+    /**
+     * Tokenize a line.
+     *
+     * @param buffer The buffer holding the line
+     * @param from Index of the first byte of the line
+     * @param to Index after the last byte of the line (without line terminator)
+     * @return false if the line is empty or a comment, true otherwise
+     */
+    boolean tokenize(ByteBuffer buffer, int from, int to) {
+        this.buffer = buffer;
+        this.count = 0;
+
+        int start = from;
+        while (start < to && isWhitespace(buffer.get(start))) {
+            start++;
+        }
+        if (start == to || buffer.get(start) == '#') {
+            return false;
+        }
+
+        int end = start;
+        while (end < to && buffer.get(end) != '#') {
+            end++;
+        }
+        while (isWhitespace(buffer.get(end - 1))) {
+            end--;
+        }
+
+        int n = 0;
+        int tokenStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || buffer.get(i) == ',') {
+                if (n < MAX_TOKENS) {
+                    starts[n] = tokenStart;
+                    ends[n] = i;
+                }
+                n++;
+                if (i > tokenStart) {
+                    // trailing empty tokens are not counted
+                    count = n;
+                }
+                tokenStart = i + 1;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of tokens in the current line
+     */
+    int count() {
+        return count;
+    }
+
+    /**
+     * @return the buffer holding the current line
+     */
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * @return index of the first byte of a token in the buffer
+     */
+    int start(int index) {
+        return starts[index];
+    }
+
+    /**
+     * @return index after the last byte of a token in the buffer
+     */
+    int end(int index) {
+        return ends[index];
+    }
+
+    /**
+     * Check whether a token equals a name, ignoring the case of ASCII letters.
+     *
+     * @param index Index of the token
+     * @param upperCaseName The name to compare to, encoded as upper case ASCII
+     */
+    boolean equalsIgnoreCase(int index, byte[] upperCaseName) {
+        int start = starts[index];
+        if (ends[index] - start != upperCaseName.length) {
+            return false;
+        }
+        for (int i = 0; i < upperCaseName.length; i++) {
+            byte b = buffer.get(start + i);
+            if (b >= 'a' && b <= 'z') {
+                b -= 'a' - 'A';
+            }
+            if (b != upperCaseName[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parse a token the same way as {@link Integer#parseInt(String)}, but without throwing an
+     * exception if the token is invalid.
+     *
+     * @return whether the token is a valid integer; if so, its value is returned by
+     *     {@link #intValue()}, otherwise the error is described by {@link #invalidNumberMessage()}
+     */
+    boolean tryParseInt(int index) {
+        int start = starts[index];
+        int end = ends[index];
+
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        if (i == end) {
+            return invalidNumber(start, end, null);
+        }
+
+        long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+        long value = 0;
+        for (; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b < '0' || b > '9') {
+                // the JDK accepts non-ASCII digits as well
+                return b < 0 ? parseIntSlow(start, end) : invalidNumber(start, end, null);
+            }
+            value = value * 10 + (b - '0');
+            if (value > limit) {
+                return invalidNumber(start, end, null);
+            }
+        }
+        intValue = (int) (negative ? -value : value);
+        return true;
+    }
+
+    /**
+     * Parse a token the same way as {@link Double#parseDouble(String)}, but without throwing an
+     * exception if the token is invalid.
+     *
+     * Plain decimal numbers that can be converted exactly are parsed in place, other valid numbers
+     * (eg. exponents, hexadecimal notation, very long mantissas) are delegated to the JDK.
+     *
+     * @return whether the token is a valid floating point number; if so, its value is returned by
+     *     {@link #doubleValue()}, otherwise the error is described by
+     *     {@link #invalidNumberMessage()}
+     */
+    boolean tryParseDouble(int index) {
+        int start = starts[index];
+        int end = ends[index];
+
+        // Double.parseDouble() trims the same characters as String.trim()
+        while (start < end && (buffer.get(start) & 0xff) <= ' ') {
+            start++;
+        }
+        while (end > start && (buffer.get(end - 1) & 0xff) <= ' ') {
+            end--;
+        }
+
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+                if (mantissa > MAX_EXACT_MANTISSA) {
+                    return parseDoubleSlow(start, end);
+                }
+            } else {
+                return parseDoubleSlow(start, end);
+            }
+        }
+        if (digits == 0 || fractionDigits >= POWERS_OF_TEN.length) {
+            return parseDoubleSlow(start, end);
+        }
+
+        // both operands are exact, so the division is correctly rounded
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        doubleValue = negative ? -value : value;
+        return true;
+    }
+
+    /**
+     * @return the value of the last integer parsed successfully
+     */
+    int intValue() {
+        return intValue;
+    }
+
+    /**
+     * @return the value of the last floating point number parsed successfully
+     */
+    double doubleValue() {
+        return doubleValue;
+    }
+
+    /**
+     * Describe why the last number could not be parsed. Allocates; the message is the same as
+     * the one of the exception thrown by the JDK for the same input.
+     */
+    String invalidNumberMessage() {
+        if (invalidMessage != null) {
+            return invalidMessage;
+        }
+        return "For input string: \"" + decode(invalidStart, invalidEnd) + "\"";
+    }
+
+    /**
+     * Decode a token to a string. Allocates; meant for error messages and rare slow paths.
+     */
+    String token(int index) {
+        return decode(starts[index], ends[index]);
+    }
+
+    private String decode(int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(from + i);
+        }
+        return new String(bytes, Charset.defaultCharset());
+    }
+
+    /**
+     * Record an invalid number.
+     *
+     * @param message The fixed message of the error, or null to report the input string
+     * @return false
+     */
+    private boolean invalidNumber(int from, int to, String message) {
+        invalidStart = from;
+        invalidEnd = to;
+        invalidMessage = message;
+        return false;
+    }
+
+    private boolean parseIntSlow(int from, int to) {
+        try {
+            intValue = Integer.parseInt(decode(from, to));
+            return true;
+        } catch (NumberFormatException e) {
+            return invalidNumber(from, to, e.getMessage());
+        }
+    }
+
+    private boolean parseDoubleSlow(int from, int to) {
+        if (!isValidDouble(from, to)) {
+            return false;
+        }
+        doubleValue = Double.parseDouble(decode(from, to));
+        return true;
+    }
+
+    /**
+     * Check a trimmed number against the grammar accepted by {@link Double#parseDouble(String)}.
+     */
+    private boolean isValidDouble(int from, int to) {
+        if (from == to) {
+            return invalidNumber(from, to, "empty String");
+        }
+        int i = from;
+        if (buffer.get(i) == '-' || buffer.get(i) == '+') {
+            i++;
+        }
+        if (i == to) {
+            return invalidNumber(from, to, null);
+        }
+        byte c = buffer.get(i);
+        if (c == 'N') {
+            return matches(i, to, NAN) || invalidNumber(from, to, null);
+        }
+        if (c == 'I') {
+            return matches(i, to, INFINITY) || invalidNumber(from, to, null);
+        }
+        if (c == '0' && i + 1 < to && (buffer.get(i + 1) == 'x' || buffer.get(i + 1) == 'X')) {
+            return isValidHexDouble(i + 2, to) || invalidNumber(from, to, null);
+        }
+
+        boolean point = false;
+        int digits = 0;
+        for (; i < to; i++) {
+            c = buffer.get(i);
+            if (c == '.') {
+                if (point) {
+                    return invalidNumber(from, to, "multiple points");
+                }
+                point = true;
+            } else if (c >= '0' && c <= '9') {
+                digits++;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return invalidNumber(from, to, null);
+        }
+        if (i < to && (c == 'e' || c == 'E')) {
+            i = skipExponent(i + 1, to);
+            if (i < 0) {
+                return invalidNumber(from, to, null);
+            }
+        }
+        return isEndOfNumber(i, to) || invalidNumber(from, to, null);
+    }
+
+    /**
+     * Check the part of a hexadecimal floating point number after the <code>0x</code> prefix.
+     */
+    private boolean isValidHexDouble(int from, int to) {
+        int i = from;
+        boolean point = false;
+        int digits = 0;
+        for (; i < to; i++) {
+            byte c = buffer.get(i);
+            if (c == '.' && !point) {
+                point = true;
+            } else if (Character.digit(c, 16) >= 0) {
+                digits++;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0 || i == to || (buffer.get(i) != 'p' && buffer.get(i) != 'P')) {
+            return false;
+        }
+        i = skipExponent(i + 1, to);
+        return i >= 0 && isEndOfNumber(i, to);
+    }
+
+    /**
+     * Skip the signed decimal digits of an exponent.
+     *
+     * @return the index after the exponent, or -1 if it has no digits
+     */
+    private int skipExponent(int from, int to) {
+        int i = from;
+        if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            i++;
+        }
+        int digits = i;
+        while (i < to && buffer.get(i) >= '0' && buffer.get(i) <= '9') {
+            i++;
+        }
+        return i == digits ? -1 : i;
+    }
+
+    /**
+     * @return whether only an optional type suffix follows a number
+     */
+    private boolean isEndOfNumber(int from, int to) {
+        if (from == to) {
+            return true;
+        }
+        byte c = buffer.get(from);
+        return from == to - 1 && (c == 'f' || c == 'F' || c == 'd' || c == 'D');
+    }
+
+    private boolean matches(int from, int to, byte[] word) {
+        if (to - from != word.length) {
+            return false;
+        }
+        for (int i = 0; i < word.length; i++) {
+            if (buffer.get(from + i) != word[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * ASCII subset of {@link Character#isWhitespace(char)}.
+     */
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || (b >= '\t' && b <= '\r') || (b >= 0x1c && b <= 0x1f);
+    }
+}
@@ -0,0 +1,130 @@
+package hu.bme.mit.spaceship;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Defaults of the simulation, resolved once when first needed.
+ *
+ * Each setting is looked up in the system properties, then in the environment, then in the
+ * configuration file, and falls back to its built-in value:
+ * <ul>
+ * <li>failure rate of the torpedo stores created without one: <code>-Dspaceship.ivt.rate</code>,
+ * <code>IVT_RATE</code>, <code>ivt.rate</code> (0.0)</li>
+ * <li>number of torpedoes of the ships created without parameters:
+ * <code>-Dspaceship.torpedo.count</code>, <code>SPACESHIP_TORPEDO_COUNT</code>,
+ * <code>torpedo.count</code> (10)</li>
+ * </ul>
+ * The configuration file is a properties file given by <code>-Dspaceship.config</code> or
+ * <code>SPACESHIP_CONFIG</code>. Invalid values are ignored, like an invalid <code>IVT_RATE</code>
+ * always was.
+ */
+final class Configuration {
+
+    static final double DEFAULT_FAILURE_RATE = 0.0;
+    static final int DEFAULT_TORPEDO_COUNT = 10;
+
+    private static final String CONFIG_PROPERTY = "spaceship.config";
+    private static final String CONFIG_ENV = "SPACESHIP_CONFIG";
+
+    private final double failureRate;
+    private final int torpedoCount;
+    private final ShipConfig defaultShip;
+
+    private Configuration(double failureRate, int torpedoCount) {
+        this.failureRate = failureRate;
+        this.torpedoCount = torpedoCount;
+        this.defaultShip = ShipConfig.of(torpedoCount, failureRate, torpedoCount, failureRate);
+    }
+
+    /**
+     * @return the configuration of the process
+     */
+    static Configuration current() {
+        return Holder.CURRENT;
+    }
+
+    /**
+     * Resolve the configuration from the given sources.
+     *
+     * @param env Environment variables
+     * @param properties System properties
+     */
+    static Configuration resolve(Map<String, String> env, Properties properties) {
+        Properties file = new Properties();
+        String path = properties.getProperty(CONFIG_PROPERTY, env.get(CONFIG_ENV));
+        if (path != null) {
+            try (Reader reader = Files.newBufferedReader(Path.of(path))) {
+                file.load(reader);
+            } catch (IOException | InvalidPathException e) {
+                System.err.println("Warning: cannot read configuration file " + path + ": "
+                        + e.getLocalizedMessage());
+            }
+        }
+
+        double failureRate = DEFAULT_FAILURE_RATE;
+        String value = lookup(env, properties, file, "IVT_RATE", "ivt.rate");
+        if (value != null) {
+            try {
+                failureRate = Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                failureRate = DEFAULT_FAILURE_RATE;
+            }
+        }
+        int torpedoCount = DEFAULT_TORPEDO_COUNT;
+        value = lookup(env, properties, file, "SPACESHIP_TORPEDO_COUNT", "torpedo.count");
+        if (value != null) {
+            try {
+                torpedoCount = Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                torpedoCount = DEFAULT_TORPEDO_COUNT;
+            }
+        }
+        return new Configuration(failureRate, torpedoCount);
+    }
+
+    /**
+     * @return the value of a setting from the first source defining it, or null
+     */
+    private static String lookup(Map<String, String> env, Properties properties,
+            Properties file, String envName, String key) {
+        String value = properties.getProperty("spaceship." + key);
+        if (value == null) {
+            value = env.get(envName);
+        }
+        if (value == null) {
+            value = file.getProperty(key);
+        }
+        return value;
+    }
+
+    /**
+     * @return the failure rate of the torpedo stores created without one
+     */
+    double failureRate() {
+        return failureRate;
+    }
+
+    /**
+     * @return the number of torpedoes in each store of the ships created without parameters
+     */
+    int torpedoCount() {
+        return torpedoCount;
+    }
+
+    /**
+     * @return the configuration of the ships created without parameters
+     */
+    ShipConfig defaultShip() {
+        return defaultShip;
+    }
+
+    private static final class Holder {
+        static final Configuration CURRENT = resolve(System.getenv(), System.getProperties());
+    }
+}
@@ -0,0 +1,131 @@
+package hu.bme.mit.spaceship;
+
+/**
+ * State of a command line session: the ships and the output of the commands.
+ */
+final class Context {
+
+    // the unnamed ship
+    SpaceShip ship;
+    // named ships, created on first use
+    ShipRegistry ships;
+
+    ResponseWriter out;
+
+    // number of commands executed
+    long commands;
+
+    // source split into the random sources of the ships, or null to use unseeded sources
+    RandomSource seeds;
+
+    // background jobs submitted in the session, created on first use
+    JobScheduler jobs;
+    // whether job commands may be used (not in jobs themselves nor in HTTP requests), and whether
+    // jobs may run script files (not in sessions of remote clients)
+    boolean jobsEnabled = true;
+    boolean scriptJobsEnabled = true;
+
+    // set by another thread to stop executing the current program, eg. when a job is cancelled
+    volatile boolean cancelled;
+
+    // value of the command counter at which the current program is stopped, eg. to bound the work
+    // of a line of a remote session
+    long commandLimit = Long.MAX_VALUE;
+
+    // number of enclosing summarized blocks, and the results counted in them
+    private int summaryDepth;
+    private long successes;
+    private long failures;
+    private long errors;
+
+    Context(ResponseWriter out) {
+        this.out = out;
+    }
+
+    ShipRegistry ships() {
+        if (ships == null) {
+            ships = new ShipRegistry();
+        }
+        return ships;
+    }
+
+    JobScheduler jobs() {
+        if (jobs == null) {
+            jobs = new JobScheduler();
+        }
+        return jobs;
+    }
+
+    /**
+     * Report the result of a command, or count it if the results are summarized.
+     */
+    void result(boolean success) {
+        if (summaryDepth == 0) {
+            out.result(success);
+        } else if (success) {
+            successes++;
+        } else {
+            failures++;
+        }
+    }
+
+    /**
+     * Report an error, or count it if the results are summarized.
+     */
+    void error(String message) {
+        if (summaryDepth == 0) {
+            out.println(message);
+        } else {
+            errors++;
+        }
+    }
+
+    /**
+     * Start summarizing results instead of reporting them one by one.
+     */
+    void beginSummary() {
+        if (summaryDepth++ == 0) {
+            successes = 0;
+            failures = 0;
+            errors = 0;
+        }
+    }
+
+    /**
+     * Stop summarizing results; the summary is reported when the outermost summarized block ends.
+     */
+    void endSummary() {
+        if (--summaryDepth == 0) {
+            out.println(String.format("SUMMARY: %d SUCCESS, %d FAIL, %d ERROR",
+                    successes, failures, errors));
+        }
+    }
+
+    /**
+     * @return the number of successes counted in the current summarized block
+     */
+    long successes() {
+        return successes;
+    }
+
+    /**
+     * @return the number of failures counted in the current summarized block
+     */
+    long failures() {
+        return failures;
+    }
+
+    /**
+     * @return the number of errors counted in the current summarized block
+     */
+    long errors() {
+        return errors;
+    }
+
+    /**
+     * Create a GT4500 with a source split from the seeds of the context, if it has any.
+     */
+    SpaceShip newGT4500(ShipConfig config) {
+        return new GT4500(config, seeds == null ? null : seeds.split());
+    }
+}
@@ -4,5 +4,5 @@ package hu.bme.mit.spaceship;
  * Weapon firing mode enumeration
  */
 public enum FiringMode {
-    SINGLE, ALL
+    SINGLE, ALL, SALVO
 }
@@ -1,5 +1,7 @@
 package hu.bme.mit.spaceship;
 
+import java.util.Random;
+
 /**
  * A simple spaceship with two proton torpedo stores and four lasers
  */
@@ -10,9 +12,11 @@ public class GT4500 implements SpaceShip {
 
     private boolean wasPrimaryFiredLast = false;
 
+    /**
+     * Create a ship of the default configuration (see {@link Configuration}).
+     */
     public GT4500() {
-        this.primaryTorpedoStore = new TorpedoStore(10);
-        this.secondaryTorpedoStore = new TorpedoStore(10);
+        this(ShipConfig.defaults(), null);
     }
 
     public GT4500(int primaryCount, double primaryFailRate, int secondaryCount,
@@ -21,6 +25,56 @@ public class GT4500 implements SpaceShip {
         this.secondaryTorpedoStore = new TorpedoStore(secondaryCount, secondaryFailRate);
     }
 
+    /**
+     * @param generator random generator split into the generators of the torpedo stores (eg. a
+     *     seeded one for reproducible runs)
+     */
+    public GT4500(int primaryCount, double primaryFailRate, int secondaryCount,
+            double secondaryFailRate, Random generator) {
+        this(primaryCount, primaryFailRate, secondaryCount, secondaryFailRate,
+                RandomSource.of(generator));
+    }
+
+    /**
+     * @param generator source of random numbers split into the sources of the torpedo stores
+     *     (eg. a seeded one for reproducible runs)
+     */
+    public GT4500(int primaryCount, double primaryFailRate, int secondaryCount,
+            double secondaryFailRate, RandomSource generator) {
+        this(ShipConfig.of(primaryCount, primaryFailRate, secondaryCount, secondaryFailRate),
+                generator);
+    }
+
+    /**
+     * @param config shared configuration of the ship
+     * @param generator source of random numbers split into the sources of the torpedo stores, so
+     *     that the stores may be fired by different threads; or null to use the source of the
+     *     firing thread
+     */
+    public GT4500(ShipConfig config, RandomSource generator) {
+        this.primaryTorpedoStore = new TorpedoStore(config.getPrimary(),
+                generator == null ? null : generator.split());
+        this.secondaryTorpedoStore = new TorpedoStore(config.getSecondary(),
+                generator == null ? null : generator.split());
+    }
+
+    /**
+     * @return whether both torpedo stores are empty
+     */
+    public boolean isEmpty() {
+        return primaryTorpedoStore.isEmpty() && secondaryTorpedoStore.isEmpty();
+    }
+
+    /**
+     * Fires all the torpedoes left in both stores in a single salvo. The torpedoes failing to
+     * launch stay in the stores.
+     *
+     * @return the number of torpedoes launched
+     */
+    public int fireSalvo() {
+        return primaryTorpedoStore.fireSalvo() + secondaryTorpedoStore.fireSalvo();
+    }
+
     public boolean fireLaser(FiringMode firingMode) {
         // TODO not implemented yet
         return false;
@@ -40,6 +94,8 @@ public class GT4500 implements SpaceShip {
      *               other one.
      *     ALL: tries to fire both of the torpedo
      *        stores.
+     *     SALVO: fires all the torpedoes of both stores at once, each of them failing
+     *        independently (see {@link #fireSalvo()}).
      *
      * @return whether at least one torpedo was fired successfully
      */
@@ -97,6 +153,10 @@ public class GT4500 implements SpaceShip {
 
                 firingSuccess = primarySuccess || secondarySuccess;
                 break;
+
+            case SALVO:
+                firingSuccess = fireSalvo() > 0;
+                break;
         }
 
         return firingSuccess;
@@ -0,0 +1,111 @@
+package hu.bme.mit.spaceship;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.concurrent.ExecutorService;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves batches of commands over HTTP, using the HTTP server of the JDK.
+ *
+ * The body of a <code>POST</code> request to {@value #PATH} is a script in the syntax of the
+ * {@link CommandLineInterface}; it is run in a fresh session and the results are streamed back in
+ * the response body as they are produced. Sending many commands in a single request amortizes the
+ * cost of the request.
+ *
+ * The request body is read completely before the first command is executed, so clients that only
+ * read the response once they have sent the whole request cannot deadlock the exchange.
+ */
+final class HttpCommandServer implements Closeable {
+
+    static final String PATH = "/commands";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final int cacheSize;
+    private final RandomSource seeds;
+
+    // compiled lines shared by the requests served by the same thread
+    private final ThreadLocal<CommandCache> caches;
+
+    /**
+     * Bind the server; requests are only served once it is started.
+     *
+     * @param address Address to listen on
+     * @param executor Executor running the requests; it is shut down when the server is closed
+     * @param cacheSize Number of compiled lines cached by each thread, or 0 to disable caching
+     * @param seeds Source of the seeds of the sessions, or null to use unseeded generators
+     */
+    HttpCommandServer(InetSocketAddress address, ExecutorService executor, int cacheSize,
+            RandomSource seeds) throws IOException {
+        this.server = HttpServer.create(address, 0);
+        this.executor = executor;
+        this.cacheSize = cacheSize;
+        this.seeds = seeds;
+        this.caches = ThreadLocal.withInitial(() -> new CommandCache(cacheSize));
+        server.createContext(PATH, this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * @return the address the server listens on (eg. to find out the port chosen by the system)
+     */
+    InetSocketAddress address() {
+        return server.getAddress();
+    }
+
+    void start() {
+        server.start();
+    }
+
+    /**
+     * Stop the server, without waiting for the running requests.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] script;
+            try (InputStream body = exchange.getRequestBody()) {
+                script = body.readAllBytes();
+            }
+
+            exchange.getResponseHeaders().set("Content-Type",
+                    "text/plain; charset=" + Charset.defaultCharset().name());
+            // the length of the results is unknown, so they are sent in chunks
+            exchange.sendResponseHeaders(200, 0);
+            ResponseWriter writer = new ResponseWriter(exchange.getResponseBody());
+            Context ctx = new Context(writer);
+            // jobs would outlive the request, with no later request able to poll or cancel them
+            ctx.jobsEnabled = false;
+            if (seeds != null) {
+                // the handler threads share the seeds
+                synchronized (seeds) {
+                    ctx.seeds = seeds.split();
+                }
+            }
+            Interpreter interpreter = new Interpreter(cacheSize > 0 ? caches.get() : null);
+            try (LineReader lines = LineReader.of(new ByteArrayInputStream(script), () -> {})) {
+                CommandLineInterface.runSession(ctx, lines, interpreter);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package hu.bme.mit.spaceship;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Executes commands one line at a time.
+ *
+ * Each line is compiled into a reusable scratch program which is executed right away. Lines of a
+ * REPEAT block are compiled until the block ends, then the whole block is executed. Compiled
+ * lines are cached by their content, so a repeated line is executed without compiling it again
+ * and without allocating; only lines missing from the cache are copied into it.
+ */
+final class Interpreter {
+
+    private final CommandTokenizer tokens = new CommandTokenizer();
+    private final Program program = new Program();
+    private final ScriptCompiler compiler = new ScriptCompiler(program, false);
+
+    // compiled lines, or null if they are not cached
+    private final CommandCache cache;
+
+    Interpreter() {
+        this(new CommandCache(CommandCache.DEFAULT_CAPACITY));
+    }
+
+    /**
+     * @param cache Cache of the compiled lines, or null to compile every line
+     */
+    Interpreter(CommandCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Handle a command.
+     * 
+     * @param ctx The current CLI context
+     * @param buffer Buffer holding the command
+     * @param from Index of the first byte of the command
+     * @param to Index after the last byte of the command
+     * @return whether execution should continue
+     */
+    CommandResult handle(Context ctx, ByteBuffer buffer, int from, int to) {
+        // lines of blocks depend on the lines before them, so only whole commands are cached
+        boolean cacheable = cache != null && !compiler.isBlockOpen();
+        if (cacheable) {
+            Program cached = cache.get(buffer, from, to);
+            if (cached != null) {
+                return cached.execute(ctx);
+            }
+        }
+
+        // empty lines and comments are never cached, so they always get here
+        if (!tokens.tokenize(buffer, from, to)) {
+            return CommandResult.CONTINUE;
+        }
+
+        compiler.compile(tokens);
+        if (compiler.isBlockOpen()) {
+            // the block is executed once it is complete
+            return CommandResult.CONTINUE;
+        }
+        if (cacheable) {
+            cache.put(buffer, from, to, program.copy());
+        }
+        return executeProgram(ctx);
+    }
+
+    /**
+     * Finish handling commands at the end of the input, reporting blocks left open.
+     *
+     * @param ctx The current CLI context
+     */
+    void finish(Context ctx) {
+        compiler.finish();
+        if (program.size() > 0) {
+            executeProgram(ctx);
+        }
+    }
+
+    private CommandResult executeProgram(Context ctx) {
+        CommandResult result = program.execute(ctx);
+        program.clear();
+        return result;
+    }
+}
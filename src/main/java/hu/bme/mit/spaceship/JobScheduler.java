@@ -0,0 +1,315 @@
+package hu.bme.mit.spaceship;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background jobs of a session, submitted with the SUBMIT command.
+ *
+ * Jobs run on a pool shared by all sessions with one thread per available processor, so many
+ * jobs run in parallel while the session goes on reading commands. A job only reports its
+ * progress and its result when polled. Jobs are numbered from 1 in each session; the scheduler
+ * itself is only used by the thread of its session.
+ *
+ * The pool threads are daemon threads: jobs still running when the program exits are abandoned.
+ */
+final class JobScheduler {
+
+    /** Upper bound of the shots fired at a ship in a run of a firing job, per torpedo. */
+    static final int MAX_SHOTS_PER_TORPEDO = 1000;
+
+    private static final class SharedPool {
+        private static final AtomicInteger threads = new AtomicInteger();
+
+        static final ExecutorService POOL = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(), task -> {
+                    Thread thread = new Thread(task, "job-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    private final ExecutorService pool;
+    private final List<Job> jobs = new ArrayList<>();
+
+    JobScheduler() {
+        this(SharedPool.POOL);
+    }
+
+    /**
+     * @param pool Pool running the jobs
+     */
+    JobScheduler(ExecutorService pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Submit a job running a script in a fresh context, counting its results.
+     *
+     * @param script Path of the script
+     * @param generator Source split into the sources of the ships of the script, or null to use
+     *     unseeded sources
+     * @return the number of the job
+     */
+    int submitScript(String script, RandomSource generator) {
+        return submit(new ScriptJob(script, generator));
+    }
+
+    /**
+     * Submit a job repeatedly creating a GT4500 and firing it until it is empty.
+     *
+     * @param runs Number of ships fired
+     * @param generator Source split into the sources of the ships, or null to use unseeded
+     *     sources
+     * @return the number of the job
+     */
+    int submitFire(int runs, int primaryCount, double primaryFailRate, int secondaryCount,
+            double secondaryFailRate, FiringMode mode, RandomSource generator) {
+        return submit(new FireJob(runs, primaryCount, primaryFailRate, secondaryCount,
+                secondaryFailRate, mode, generator));
+    }
+
+    /**
+     * @return the status line of a job, or null if there is no such job
+     */
+    String status(int id) {
+        Job job = job(id);
+        return job == null ? null : job.status();
+    }
+
+    /**
+     * @return the status lines of all jobs, in the order of submission
+     */
+    List<String> statuses() {
+        List<String> statuses = new ArrayList<>();
+        for (Job job : jobs) {
+            statuses.add(job.status());
+        }
+        return statuses;
+    }
+
+    /**
+     * Cancel a job unless it has already ended.
+     *
+     * @return the status line of the job, or null if there is no such job
+     */
+    String cancel(int id) {
+        Job job = job(id);
+        if (job == null) {
+            return null;
+        }
+        job.cancel();
+        return job.status();
+    }
+
+    /**
+     * Cancel all the jobs that have not ended yet, eg. when the session ends.
+     */
+    void cancelAll() {
+        for (Job job : jobs) {
+            job.cancel();
+        }
+    }
+
+    private int submit(Job job) {
+        jobs.add(job);
+        job.id = jobs.size();
+        job.future = pool.submit(job);
+        return job.id;
+    }
+
+    private Job job(int id) {
+        return id >= 1 && id <= jobs.size() ? jobs.get(id - 1) : null;
+    }
+
+    private enum State {
+        QUEUED, RUNNING, DONE, CANCELLED, FAILED
+    }
+
+    /**
+     * Work running in the background, reporting its progress.
+     */
+    private abstract static class Job implements Runnable {
+
+        int id;
+        Future<?> future;
+
+        private volatile State state = State.QUEUED;
+        // outcome of a finished job, or the error message of a failed one
+        private volatile String result;
+
+        volatile boolean cancelled;
+        // amount of work done so far
+        volatile long progress;
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                state = State.CANCELLED;
+                return;
+            }
+            state = State.RUNNING;
+            try {
+                String outcome = execute();
+                result = outcome;
+                state = cancelled ? State.CANCELLED : State.DONE;
+            } catch (IOException | RuntimeException e) {
+                result = e.getLocalizedMessage();
+                state = State.FAILED;
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            if (future.cancel(false)) {
+                // it has never started
+                state = State.CANCELLED;
+            }
+        }
+
+        String status() {
+            switch (state) {
+                case QUEUED:
+                    return "JOB " + id + ": QUEUED";
+                case RUNNING:
+                    return "JOB " + id + ": RUNNING " + progress();
+                case DONE:
+                    return "JOB " + id + ": DONE " + result;
+                case CANCELLED:
+                    return "JOB " + id + ": CANCELLED after " + progress();
+                default:
+                    return "JOB " + id + ": FAILED: " + result;
+            }
+        }
+
+        /**
+         * Do the work, checking {@link #cancelled} regularly.
+         *
+         * @return the outcome of the job
+         */
+        abstract String execute() throws IOException;
+
+        /**
+         * @return the description of the progress
+         */
+        abstract String progress();
+    }
+
+    /**
+     * Runs a script in a fresh context, summarizing its results. Job commands of the script are
+     * reported as errors.
+     */
+    private static final class ScriptJob extends Job {
+
+        private final String script;
+        private final RandomSource generator;
+        private volatile Context ctx;
+
+        ScriptJob(String script, RandomSource generator) {
+            this.script = script;
+            this.generator = generator;
+        }
+
+        @Override
+        String execute() throws IOException {
+            Context ctx = new Context(new ResponseWriter(OutputStream.nullOutputStream()));
+            ctx.seeds = generator;
+            // jobs submitted by the script could neither be polled nor cancelled
+            ctx.jobsEnabled = false;
+            this.ctx = ctx;
+            if (cancelled) {
+                return null;
+            }
+            Interpreter interpreter = new Interpreter();
+            ctx.beginSummary();
+            try (LineReader lines = LineReader.of(Path.of(script))) {
+                CommandResult result = CommandResult.CONTINUE;
+                while (result == CommandResult.CONTINUE && !cancelled && lines.next()) {
+                    result = interpreter.handle(ctx, lines.buffer(), lines.start(), lines.end());
+                    progress = ctx.commands;
+                }
+                if (result == CommandResult.CONTINUE && !cancelled) {
+                    interpreter.finish(ctx);
+                    progress = ctx.commands;
+                }
+            }
+            return ctx.commands + " commands, " + ctx.successes() + " SUCCESS, "
+                    + ctx.failures() + " FAIL, " + ctx.errors() + " ERROR";
+        }
+
+        @Override
+        void cancel() {
+            super.cancel();
+            Context ctx = this.ctx;
+            if (ctx != null) {
+                // stop a long block of the script
+                ctx.cancelled = true;
+            }
+        }
+
+        @Override
+        String progress() {
+            return progress + " commands";
+        }
+    }
+
+    /**
+     * Fires fresh ships until they are empty.
+     */
+    private static final class FireJob extends Job {
+
+        private final int runs;
+        private final ShipConfig config;
+        private final FiringMode mode;
+        private final RandomSource generator;
+
+        FireJob(int runs, int primaryCount, double primaryFailRate, int secondaryCount,
+                double secondaryFailRate, FiringMode mode, RandomSource generator) {
+            this.runs = runs;
+            this.config =
+                    ShipConfig.of(primaryCount, primaryFailRate, secondaryCount, secondaryFailRate);
+            this.mode = mode;
+            this.generator = generator;
+        }
+
+        @Override
+        String execute() {
+            // ships failing every time would never become empty
+            long maxShots = (Math.max(config.getPrimary().getTorpedoCount(), 0)
+                    + (long) Math.max(config.getSecondary().getTorpedoCount(), 0))
+                    * MAX_SHOTS_PER_TORPEDO;
+            long successes = 0;
+            long failures = 0;
+            for (int run = 0; run < runs && !cancelled; run++) {
+                GT4500 ship = new GT4500(config, generator == null ? null : generator.split());
+                for (long shot = 0; shot < maxShots && !ship.isEmpty() && !cancelled; shot++) {
+                    if (ship.fireTorpedo(mode)) {
+                        successes++;
+                    } else {
+                        failures++;
+                    }
+                }
+                if (cancelled) {
+                    // the run was stopped before the ship became empty
+                    break;
+                }
+                progress = run + 1;
+            }
+            return progress + " runs, " + (successes + failures) + " shots, " + successes
+                    + " SUCCESS, " + failures + " FAIL";
+        }
+
+        @Override
+        String progress() {
+            return (runs == 0 ? 100 : progress * 100 / runs) + "% (" + progress + "/" + runs
+                    + " runs)";
+        }
+    }
+}
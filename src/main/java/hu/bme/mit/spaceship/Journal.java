@@ -0,0 +1,373 @@
+package hu.bme.mit.spaceship;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only record of command line sessions, from which their output can be reproduced.
+ *
+ * A session is recorded as a header line holding the seed of its context (so the ships draw the
+ * same random numbers when the session is replayed) followed by the lines it handled. Comment
+ * lines starting with <code>#</code> are not recorded, so a journal is itself a script which
+ * {@link #replay(LineReader, ResponseWriter) replays} the sessions in fresh contexts.
+ *
+ * Lines are recorded by copying them into a buffer; a background thread writes the buffer to the
+ * file and forces it to the disk. While it is doing so, the lines recorded meanwhile accumulate in
+ * a second buffer, which is committed with a single write and a single force next time (group
+ * commit). The session only waits for the journal if both buffers are full.
+ */
+final class Journal implements Closeable {
+
+    static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    private static final String SESSION = "#session ";
+    private static final byte[] LINE_SEPARATOR = {'\n'};
+
+    private final FileChannel channel;
+    private final Thread committer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    // lines recorded but not committed yet, and the buffer being committed
+    private byte[] active;
+    private int activeLength;
+    private byte[] committing;
+
+    private boolean closed;
+    private IOException failure;
+
+    private long records;
+    private long commits;
+
+    private Journal(FileChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.active = new byte[bufferSize];
+        this.committing = new byte[bufferSize];
+        this.committer = new Thread(this::commitLoop, "journal-committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Open a journal for appending, creating the file if it does not exist.
+     */
+    static Journal open(Path file) throws IOException {
+        return open(file, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize Size of each of the two buffers of the journal
+     */
+    static Journal open(Path file, int bufferSize) throws IOException {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Invalid buffer size: " + bufferSize);
+        }
+        return new Journal(FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND), bufferSize);
+    }
+
+    /**
+     * Record the start of a session.
+     *
+     * @param seed Seed of the source of the seeds of the ships in the session
+     */
+    void beginSession(long seed) {
+        byte[] header = (SESSION + seed).getBytes(StandardCharsets.US_ASCII);
+        append(ByteBuffer.wrap(header), 0, header.length);
+    }
+
+    /**
+     * Record a line handled in the current session; comment lines are not recorded.
+     */
+    void record(ByteBuffer buffer, int from, int to) {
+        if (to > from && buffer.get(from) == '#') {
+            return;
+        }
+        append(buffer, from, to);
+    }
+
+    /**
+     * @return a reader that records each line read from another reader
+     */
+    LineReader recording(LineReader lines) {
+        return new RecordingLineReader(lines);
+    }
+
+    /**
+     * @return the number of lines recorded (including session headers)
+     */
+    long records() {
+        lock.lock();
+        try {
+            return records;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of times the recorded lines have been written and forced to the disk
+     */
+    long commits() {
+        lock.lock();
+        try {
+            return commits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Commit the lines recorded so far and close the file.
+     *
+     * @throws IOException if the lines could not be committed
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        boolean interrupted = false;
+        while (committer.isAlive()) {
+            try {
+                committer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Create the context of a recorded or replayed session.
+     *
+     * Job commands are not available in it: their results depend on the timing of the jobs, and
+     * script jobs read files that are not recorded.
+     *
+     * @param out Writer of the output of the session
+     * @param seed Seed of the ships of the session
+     */
+    static Context newContext(ResponseWriter out, long seed) {
+        Context ctx = new Context(out);
+        ctx.seeds = RandomSource.seeded(seed);
+        ctx.jobsEnabled = false;
+        return ctx;
+    }
+
+    /**
+     * Replay the sessions of a journal, each in a fresh context.
+     *
+     * @param journal Lines of the journal
+     * @param out Writer of the output of the sessions
+     * @return the number of commands executed
+     * @throws IOException if the journal cannot be read or it is invalid
+     */
+    static long replay(LineReader journal, ResponseWriter out) throws IOException {
+        long commands = 0;
+        Context ctx = null;
+        Interpreter interpreter = null;
+        // whether the current session has ended with an EXIT command
+        boolean exited = false;
+        long line = 0;
+        try {
+            while (journal.next()) {
+                line++;
+                ByteBuffer buffer = journal.buffer();
+                int from = journal.start();
+                int to = journal.end();
+                if (to > from && buffer.get(from) == '#') {
+                    Long seed = sessionSeed(buffer, from, to);
+                    if (seed == null) {
+                        throw new IOException("Invalid journal record in line " + line);
+                    }
+                    if (ctx != null) {
+                        commands += endSession(ctx, interpreter, exited);
+                    }
+                    ctx = newContext(out, seed);
+                    interpreter = new Interpreter();
+                    exited = false;
+                } else if (ctx == null) {
+                    throw new IOException("Missing session header before line " + line);
+                } else if (!exited) {
+                    exited = interpreter.handle(ctx, buffer, from, to) == CommandResult.EXIT;
+                }
+            }
+            if (ctx != null) {
+                commands += endSession(ctx, interpreter, exited);
+            }
+        } finally {
+            out.flush();
+        }
+        return commands;
+    }
+
+    private static long endSession(Context ctx, Interpreter interpreter, boolean exited) {
+        if (!exited) {
+            // the input of the session ended here
+            interpreter.finish(ctx);
+        }
+        return ctx.commands;
+    }
+
+    /**
+     * @return the seed in a session header, or null if the line is not a session header
+     */
+    private static Long sessionSeed(ByteBuffer buffer, int from, int to) {
+        String line = new String(ByteSlices.copy(buffer, from, to), StandardCharsets.US_ASCII);
+        if (!line.startsWith(SESSION)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(line.substring(SESSION.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Copy a line into the active buffer, waiting if it is full.
+     */
+    private void append(ByteBuffer buffer, int from, int to) {
+        int length = to - from + LINE_SEPARATOR.length;
+        lock.lock();
+        try {
+            if (length > active.length) {
+                // a line longer than the buffers: wait for the buffers to be empty, then grow them
+                while (activeLength > 0 && failure == null) {
+                    notFull.awaitUninterruptibly();
+                }
+                active = new byte[length];
+                committing = new byte[length];
+            }
+            while (activeLength + length > active.length && failure == null) {
+                notFull.awaitUninterruptibly();
+            }
+            if (failure != null || closed) {
+                // the journal is broken; the failure is reported when it is closed
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                active[activeLength++] = buffer.get(i);
+            }
+            active[activeLength++] = LINE_SEPARATOR[0];
+            records++;
+            if (activeLength == length) {
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Committer thread: write and force the recorded lines until the journal is closed.
+     */
+    private void commitLoop() {
+        while (true) {
+            byte[] batch;
+            int length;
+            lock.lock();
+            try {
+                while (activeLength == 0 && !closed) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (activeLength == 0) {
+                    return;
+                }
+                // swap the buffers, so the sessions can go on recording while committing
+                batch = active;
+                length = activeLength;
+                active = committing;
+                activeLength = 0;
+                committing = batch;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                ByteBuffer data = ByteBuffer.wrap(batch, 0, length);
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    failure = e;
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+
+            lock.lock();
+            try {
+                commits++;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Reader recording the lines it reads in the journal.
+     */
+    private final class RecordingLineReader implements LineReader {
+
+        private final LineReader lines;
+
+        RecordingLineReader(LineReader lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            if (!lines.next()) {
+                return false;
+            }
+            record(lines.buffer(), lines.start(), lines.end());
+            return true;
+        }
+
+        @Override
+        public ByteBuffer buffer() {
+            return lines.buffer();
+        }
+
+        @Override
+        public int start() {
+            return lines.start();
+        }
+
+        @Override
+        public int end() {
+            return lines.end();
+        }
+
+        @Override
+        public void close() throws IOException {
+            lines.close();
+        }
+    }
+}
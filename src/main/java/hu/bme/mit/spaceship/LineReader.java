@@ -0,0 +1,58 @@
+package hu.bme.mit.spaceship;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Source of input lines for the command line interface.
+ *
+ * Lines are not copied into strings: after a successful {@link #next()} call the current line is
+ * the slice between {@link #start()} and {@link #end()} of {@link #buffer()}, which stays valid
+ * until the next call. Lines are terminated by <code>\n</code>, <code>\r\n</code> or
+ * <code>\r</code>; the terminator is not part of the slice.
+ */
+interface LineReader extends Closeable {
+
+    /**
+     * Advance to the next line.
+     *
+     * @return false if the end of the input has been reached
+     */
+    boolean next() throws IOException;
+
+    /**
+     * @return the buffer holding the current line
+     */
+    ByteBuffer buffer();
+
+    /**
+     * @return index of the first byte of the current line
+     */
+    int start();
+
+    /**
+     * @return index after the last byte of the current line
+     */
+    int end();
+
+    /**
+     * Create a reader consuming a stream through a large reusable buffer.
+     *
+     * @param in The stream to read
+     * @param beforeRead Flushed each time before reading from the stream (which may block)
+     */
+    static LineReader of(InputStream in, Flushable beforeRead) {
+        return new StreamLineReader(in, beforeRead, StreamLineReader.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a reader that memory-maps a file.
+     */
+    static LineReader of(Path file) throws IOException {
+        return new MappedLineReader(file, MappedLineReader.DEFAULT_WINDOW_SIZE);
+    }
+}
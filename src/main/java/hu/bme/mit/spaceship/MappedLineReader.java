@@ -0,0 +1,125 @@
+package hu.bme.mit.spaceship;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Line reader for script files.
+ *
+ * The file is memory-mapped in windows, so lines are handed out directly from the page cache
+ * without copying. Files larger than a window are remapped starting at the first incomplete line;
+ * a single line must not be longer than the window.
+ */
+final class MappedLineReader implements LineReader {
+
+    static final int DEFAULT_WINDOW_SIZE = 256 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+
+    private MappedByteBuffer window;
+    private long windowOffset;
+
+    // next unread byte and end of the window
+    private int position;
+    private int limit;
+
+    private int start;
+    private int end;
+
+    private boolean skipLineFeed;
+
+    MappedLineReader(Path file, int windowSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowSize = windowSize;
+        map(0);
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        int i = position;
+        while (true) {
+            if (skipLineFeed) {
+                // the previous line was terminated by \r, it may be followed by \n
+                if (position < limit) {
+                    if (window.get(position) == '\n') {
+                        position++;
+                    }
+                    skipLineFeed = false;
+                    i = position;
+                } else if (!isLastWindow()) {
+                    map(windowOffset + position);
+                    continue;
+                } else {
+                    skipLineFeed = false;
+                }
+            }
+
+            for (; i < limit; i++) {
+                byte b = window.get(i);
+                if (b == '\n' || b == '\r') {
+                    start = position;
+                    end = i;
+                    position = i + 1;
+                    skipLineFeed = b == '\r';
+                    return true;
+                }
+            }
+
+            if (isLastWindow()) {
+                if (position < limit) {
+                    // last line without a terminator
+                    start = position;
+                    end = limit;
+                    position = limit;
+                    return true;
+                }
+                return false;
+            }
+
+            if (position == 0) {
+                throw new IOException("Line longer than " + windowSize + " bytes");
+            }
+            int scanned = i - position;
+            map(windowOffset + position);
+            i = scanned;
+        }
+    }
+
+    @Override
+    public ByteBuffer buffer() {
+        return window;
+    }
+
+    @Override
+    public int start() {
+        return start;
+    }
+
+    @Override
+    public int end() {
+        return end;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean isLastWindow() {
+        return windowOffset + limit == size;
+    }
+
+    private void map(long offset) throws IOException {
+        windowOffset = offset;
+        limit = (int) Math.min(windowSize, size - offset);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, limit);
+        position = 0;
+    }
+}
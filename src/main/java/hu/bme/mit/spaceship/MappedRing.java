@@ -0,0 +1,226 @@
+package hu.bme.mit.spaceship;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Single-producer/single-consumer ring of records in a (memory-mapped) byte buffer.
+ *
+ * The ring may be shared by two processes mapping the same file: the producer and the consumer
+ * only communicate through two counters, published with release/acquire semantics. Each counter
+ * is on its own cache line, and each side caches the counter of the other side, so the shared
+ * counters are only read when the ring seems to be full or empty.
+ *
+ * Records are stored contiguously (a record that does not fit before the end of the ring is
+ * preceded by padding), so the consumer can process a record in place without copying it.
+ *
+ * Layout of the region: the write counter, the read counter, then the data.
+ */
+final class MappedRing {
+
+    /** Size of the control block preceding the data. */
+    static final int CONTROL_SIZE = 128;
+
+    // byte offsets of the counters
+    private static final int TAIL = 0;
+    private static final int HEAD = 64;
+
+    // special record lengths
+    private static final int PADDING = -1;
+    private static final int END = -2;
+
+    private static final int ALIGNMENT = 8;
+
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ByteBuffer buffer;
+    private final int capacity;
+
+    // producer side: next byte written, and the last read counter seen
+    private final ByteBuffer writer;
+    private long tail;
+    private long cachedHead;
+
+    // consumer side: next byte read, the last write counter seen, and the current record
+    private final ByteBuffer reader;
+    private long head;
+    private long cachedTail;
+    private long next;
+    private int start;
+    private int end;
+    private boolean endOfStream;
+
+    /**
+     * @param region Buffer of {@link #size(int)} bytes, whose counters are initially zero
+     * @param capacity Size of the data in bytes, a power of two
+     */
+    MappedRing(ByteBuffer region, int capacity) {
+        if (capacity < ALIGNMENT || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.buffer = region;
+        this.capacity = capacity;
+        this.writer = region.duplicate();
+        this.reader = region.duplicate();
+        this.tail = (long) LONGS.getAcquire(region, TAIL);
+        this.head = (long) LONGS.getAcquire(region, HEAD);
+        this.cachedHead = head;
+        this.cachedTail = tail;
+    }
+
+    /**
+     * @return the size of the region of a ring
+     */
+    static int size(int capacity) {
+        return CONTROL_SIZE + capacity;
+    }
+
+    /**
+     * @return the length of the longest record that fits in the ring
+     */
+    int maxRecordLength() {
+        // a record may need as much padding as its own size
+        return capacity / 2 - Integer.BYTES;
+    }
+
+    /**
+     * Append a record, if there is room for it.
+     *
+     * @return whether the record was appended
+     */
+    boolean offer(byte[] bytes, int offset, int length) {
+        int at = reserve(length);
+        if (at < 0) {
+            return false;
+        }
+        writer.position(at);
+        writer.put(bytes, offset, length);
+        publish(length);
+        return true;
+    }
+
+    /**
+     * Append a record marking the end of the stream, if there is room for it.
+     *
+     * @return whether the record was appended
+     */
+    boolean offerEnd() {
+        if (reserve(0) < 0) {
+            return false;
+        }
+        buffer.putInt(CONTROL_SIZE + (int) (tail & (capacity - 1)), END);
+        publish(0);
+        return true;
+    }
+
+    /**
+     * Look for the next record; it remains available until {@link #release()} is called.
+     *
+     * @return whether there is a record
+     */
+    boolean poll() {
+        while (true) {
+            if (head == cachedTail) {
+                cachedTail = (long) LONGS.getAcquire(buffer, TAIL);
+                if (head == cachedTail) {
+                    return false;
+                }
+            }
+            int offset = (int) (head & (capacity - 1));
+            int length = buffer.getInt(CONTROL_SIZE + offset);
+            if (length == PADDING) {
+                head += capacity - offset;
+                continue;
+            }
+            endOfStream = length == END;
+            start = CONTROL_SIZE + offset + Integer.BYTES;
+            end = endOfStream ? start : start + length;
+            next = head + align(Integer.BYTES + end - start);
+            return true;
+        }
+    }
+
+    /**
+     * @return the buffer holding the current record
+     */
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * @return index of the first byte of the current record
+     */
+    int start() {
+        return start;
+    }
+
+    /**
+     * @return index after the last byte of the current record
+     */
+    int end() {
+        return end;
+    }
+
+    /**
+     * @return whether the current record marks the end of the stream
+     */
+    boolean isEnd() {
+        return endOfStream;
+    }
+
+    /**
+     * Copy the current record to an array.
+     */
+    void copyTo(byte[] bytes, int offset) {
+        reader.position(start);
+        reader.get(bytes, offset, end - start);
+    }
+
+    /**
+     * Hand the space of the current record back to the producer.
+     */
+    void release() {
+        head = next;
+        LONGS.setRelease(buffer, HEAD, head);
+    }
+
+    /**
+     * Make room for a record, inserting padding if it does not fit before the end of the ring.
+     *
+     * @return index of the data of the record, or -1 if the ring is full
+     */
+    private int reserve(int length) {
+        int size = align(Integer.BYTES + length);
+        if (length < 0 || length > maxRecordLength()) {
+            throw new IllegalArgumentException("Record longer than " + maxRecordLength()
+                    + " bytes: " + length);
+        }
+        int offset = (int) (tail & (capacity - 1));
+        int padding = offset + size > capacity ? capacity - offset : 0;
+        if (tail + padding + size - cachedHead > capacity) {
+            cachedHead = (long) LONGS.getAcquire(buffer, HEAD);
+            if (tail + padding + size - cachedHead > capacity) {
+                return -1;
+            }
+        }
+        if (padding > 0) {
+            buffer.putInt(CONTROL_SIZE + offset, PADDING);
+            tail += padding;
+            offset = 0;
+        }
+        buffer.putInt(CONTROL_SIZE + offset, length);
+        return CONTROL_SIZE + offset + Integer.BYTES;
+    }
+
+    private void publish(int length) {
+        tail += align(Integer.BYTES + length);
+        LONGS.setRelease(buffer, TAIL, tail);
+    }
+
+    private static int align(int size) {
+        return (size + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+}
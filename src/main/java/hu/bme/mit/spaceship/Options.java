@@ -0,0 +1,325 @@
+package hu.bme.mit.spaceship;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Command line options of the {@link CommandLineInterface}.
+ */
+final class Options {
+
+    static final String USAGE = String.join(System.lineSeparator(),
+            "usage: CommandLineInterface [options] [SCRIPT...]",
+            "",
+            "Without scripts, commands are read from the standard input interactively.",
+            "A directory given as SCRIPT stands for all files in it matching 'input*'.",
+            "",
+            "  -o, --output FILE   write results to FILE instead of the standard output",
+            "  -j, --jobs N        run the scripts concurrently on N threads (0: one per",
+            "                      core), writing the results of each script to its own file",
+            "  -l, --listen [HOST:]PORT",
+            "                      serve sessions over TCP on PORT (of the loopback interface",
+            "                      by default) instead of running scripts; with -j, connections",
+            "                      are served by N threads",
+            "      --http [HOST:]PORT",
+            "                      serve batches of commands POSTed to " + HttpCommandServer.PATH,
+            "                      over HTTP on PORT; with -j, requests are run on N threads",
+            "      --ipc FILE      exchange commands and results with a driver process through",
+            "                      ring buffers in the memory-mapped FILE (created by this",
+            "                      process) and exit at the end of the session",
+            "  -p, --pipeline      read and compile, execute, and write the results of text",
+            "                      scripts on three separate threads (not interactive)",
+            "      --wait MODE     how to wait for the driver (or for the other threads with",
+            "                      -p): spin, yield (default) or park",
+            "  -d, --output-dir DIR",
+            "                      directory of the result files of concurrent runs",
+            "                      (default: current directory)",
+            "  -r, --runs N        compile each script once and run it N times, each time",
+            "                      with fresh ships",
+            "  -s, --seed SEED     seed the random generators of the ships (each run and",
+            "                      each script gets a different seed derived from SEED)",
+            "  -b, --binary        the scripts (or the standard input) are binary scripts",
+            "      --to-binary FILE",
+            "                      convert the text scripts (or the standard input) to the",
+            "                      binary script FILE instead of running them",
+            "      --journal FILE  append the interpreted sessions to the journal FILE, with",
+            "                      the seeds of their ships (seeded randomly without -s)",
+            "      --replay FILE   replay the sessions of the journal FILE instead of running",
+            "                      scripts, reproducing their results",
+            "      --format FORMAT results format of batch runs: text (default), rle (runs",
+            "                      of identical results on one line, eg. 'SUCCESS x1000') or",
+            "                      bits (binary, one bit per result)",
+            "      --expand FILE   convert results written in the rle or bits format back to",
+            "                      text instead of running scripts",
+            "  -c, --cache N       cache the compiled form of up to N distinct lines",
+            "                      (0: disabled, default: " + CommandCache.DEFAULT_CAPACITY + ")",
+            "  -w, --warm-up       before reading any input, run synthetic commands until the",
+            "                      JIT compiler settles (at most "
+                    + WarmUp.DEFAULT_MAX_NANOS / 1_000_000_000 + " s)",
+            "  -q, --quiet         do not print the banner and prompts when reading the",
+            "                      standard input",
+            "  -h, --help          print this help");
+
+    /** Script files to run in batch mode, in order. */
+    final List<Path> scripts = new ArrayList<>();
+
+    /** File to write results to, or null for the standard output. */
+    Path output;
+
+    /** Number of threads for running scripts concurrently, or -1 to run them sequentially. */
+    int jobs = -1;
+
+    /** Address to serve sessions on, or null to run scripts. */
+    InetSocketAddress listen;
+
+    /** Address to serve batches of commands over HTTP on, or null. */
+    InetSocketAddress http;
+
+    /** Shared memory file to exchange commands and results through, or null. */
+    Path ipc;
+
+    /** Whether to run text scripts in a {@link PipelinedRunner}. */
+    boolean pipeline;
+
+    /** How to wait for the other side of the shared memory rings or the other pipeline stages. */
+    WaitStrategy wait = WaitStrategy.YIELD;
+
+    /** Directory of the result files of concurrent runs. */
+    Path outputDir = Path.of(".");
+
+    /** Number of times each script is run in compiled form, or 0 to interpret the scripts. */
+    int runs;
+
+    /** Seed of the random generators, or null to use unseeded generators. */
+    Long seed;
+
+    /** Whether the scripts are in binary form. */
+    boolean binary;
+
+    /** Binary script to convert the text scripts to, or null to run them. */
+    Path toBinary;
+
+    /** Journal to record the sessions in, or null. */
+    Path journal;
+
+    /** Journal whose sessions are replayed instead of running scripts, or null. */
+    Path replay;
+
+    /** Format of the results of batch runs. */
+    OutputFormat format = OutputFormat.TEXT;
+
+    /** Results to convert back to the text format instead of running scripts, or null. */
+    Path expand;
+
+    /** Number of distinct lines whose compiled form is cached, or 0 to disable the cache. */
+    int cacheSize = CommandCache.DEFAULT_CAPACITY;
+
+    /** Whether to warm up the JIT compiler before reading any input. */
+    boolean warmUp;
+
+    boolean quiet;
+    boolean help;
+
+    /**
+     * Parse the command line arguments.
+     *
+     * @throws IllegalArgumentException if the arguments are invalid
+     */
+    static Options parse(String[] args) {
+        Options options = new Options();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "-o":
+                case "--output":
+                    options.output = Path.of(value(args, ++i, arg));
+                    break;
+                case "-j":
+                case "--jobs":
+                    options.jobs = intValue(args, ++i, arg);
+                    if (options.jobs < 0) {
+                        throw new IllegalArgumentException("Invalid number of jobs: " + args[i]);
+                    }
+                    break;
+                case "-l":
+                case "--listen":
+                    options.listen = address(value(args, ++i, arg));
+                    break;
+                case "--http":
+                    options.http = address(value(args, ++i, arg));
+                    break;
+                case "--ipc":
+                    options.ipc = Path.of(value(args, ++i, arg));
+                    break;
+                case "-p":
+                case "--pipeline":
+                    options.pipeline = true;
+                    break;
+                case "--wait":
+                    String mode = value(args, ++i, arg);
+                    try {
+                        options.wait = WaitStrategy.valueOf(mode.toUpperCase());
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown wait mode: " + mode, e);
+                    }
+                    break;
+                case "-d":
+                case "--output-dir":
+                    options.outputDir = Path.of(value(args, ++i, arg));
+                    break;
+                case "-r":
+                case "--runs":
+                    options.runs = intValue(args, ++i, arg);
+                    if (options.runs < 1) {
+                        throw new IllegalArgumentException("Invalid number of runs: " + args[i]);
+                    }
+                    break;
+                case "-s":
+                case "--seed":
+                    String seed = value(args, ++i, arg);
+                    try {
+                        options.seed = Long.parseLong(seed);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid seed: " + seed, e);
+                    }
+                    break;
+                case "-b":
+                case "--binary":
+                    options.binary = true;
+                    break;
+                case "--to-binary":
+                    options.toBinary = Path.of(value(args, ++i, arg));
+                    break;
+                case "--journal":
+                    options.journal = Path.of(value(args, ++i, arg));
+                    break;
+                case "--replay":
+                    options.replay = Path.of(value(args, ++i, arg));
+                    break;
+                case "--format":
+                    String format = value(args, ++i, arg);
+                    try {
+                        options.format = OutputFormat.valueOf(format.toUpperCase());
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown format: " + format, e);
+                    }
+                    break;
+                case "--expand":
+                    options.expand = Path.of(value(args, ++i, arg));
+                    break;
+                case "-c":
+                case "--cache":
+                    options.cacheSize = intValue(args, ++i, arg);
+                    if (options.cacheSize < 0) {
+                        throw new IllegalArgumentException("Invalid cache size: " + args[i]);
+                    }
+                    break;
+                case "-w":
+                case "--warm-up":
+                    options.warmUp = true;
+                    break;
+                case "-q":
+                case "--quiet":
+                    options.quiet = true;
+                    break;
+                case "-h":
+                case "--help":
+                    options.help = true;
+                    break;
+                default:
+                    if (arg.startsWith("-") && arg.length() > 1) {
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    }
+                    options.scripts.add(Path.of(arg));
+            }
+        }
+        if (options.journal != null && (options.runs > 0 || options.binary || options.pipeline
+                || options.jobs >= 0 || options.toBinary != null)) {
+            throw new IllegalArgumentException(
+                    "--journal only records sessions interpreting text scripts");
+        }
+        if (options.pipeline && options.runs > 0) {
+            throw new IllegalArgumentException("--pipeline cannot be combined with --runs");
+        }
+        if (options.format != OutputFormat.TEXT && options.jobs >= 0) {
+            throw new IllegalArgumentException("Concurrent runs only write text results");
+        }
+        if (options.format != OutputFormat.TEXT
+                && (options.listen != null || options.http != null || options.ipc != null)) {
+            throw new IllegalArgumentException("Sessions of clients only get text results");
+        }
+        return options;
+    }
+
+    /**
+     * @return whether the session is interactive (feedback is written to the standard error)
+     */
+    boolean isInteractive() {
+        return scripts.isEmpty() && !quiet && runs == 0 && !pipeline
+                && format == OutputFormat.TEXT;
+    }
+
+    /**
+     * Resolve the script arguments: directories are replaced by the files in them matching
+     * <code>input*</code>, in alphabetical order.
+     */
+    List<Path> resolveScripts() throws IOException {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:input*");
+        List<Path> resolved = new ArrayList<>();
+        for (Path script : scripts) {
+            if (Files.isDirectory(script)) {
+                try (Stream<Path> files = Files.list(script)) {
+                    files.filter(file -> matcher.matches(file.getFileName()))
+                            .filter(Files::isRegularFile)
+                            .sorted()
+                            .forEach(resolved::add);
+                }
+            } else {
+                resolved.add(script);
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Parse a <code>[HOST:]PORT</code> address; the host defaults to the loopback interface.
+     */
+    private static InetSocketAddress address(String value) {
+        int colon = value.lastIndexOf(':');
+        String port = value.substring(colon + 1);
+        try {
+            int number = Integer.parseInt(port);
+            if (colon < 0) {
+                return new InetSocketAddress(InetAddress.getLoopbackAddress(), number);
+            }
+            return new InetSocketAddress(value.substring(0, colon), number);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid port: " + port, e);
+        }
+    }
+
+    private static int intValue(String[] args, int i, String option) {
+        String value = value(args, i, option);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(
+                    "Invalid numerical value for option " + option + ": " + value, e);
+        }
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value for option " + option);
+        }
+        return args[i];
+    }
+}
@@ -0,0 +1,46 @@
+package hu.bme.mit.spaceship;
+
+import java.io.OutputStream;
+
+/**
+ * Formats of the results written by the command line interface.
+ *
+ * The compact formats carry the same information as the text format, and can be converted back to
+ * it with {@link RunLengthWriter#expand(LineReader, ResponseWriter)} and
+ * {@link BitPackedWriter#expand(java.io.InputStream, ResponseWriter)}.
+ */
+enum OutputFormat {
+
+    /** One line per result or message. */
+    TEXT {
+        @Override
+        ResponseWriter writer(OutputStream out, int bufferSize) {
+            return new ResponseWriter(out, bufferSize);
+        }
+    },
+
+    /** Text with runs of identical results collapsed into a single line. */
+    RLE {
+        @Override
+        ResponseWriter writer(OutputStream out, int bufferSize) {
+            return new RunLengthWriter(out, bufferSize);
+        }
+    },
+
+    /** Binary stream with one bit per result. */
+    BITS {
+        @Override
+        ResponseWriter writer(OutputStream out, int bufferSize) {
+            return new BitPackedWriter(out, bufferSize);
+        }
+    };
+
+    ResponseWriter writer(OutputStream out) {
+        return writer(out, ResponseWriter.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a writer of results in this format.
+     */
+    abstract ResponseWriter writer(OutputStream out, int bufferSize);
+}
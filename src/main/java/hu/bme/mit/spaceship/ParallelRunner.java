@@ -0,0 +1,168 @@
+package hu.bme.mit.spaceship;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs independent command scripts concurrently on a work-stealing pool.
+ *
+ * Each script gets its own context (and thus its own ships) and writes its results to its own
+ * file named after the script with an <code>.out</code> suffix, so the scripts share no state.
+ * The random sources of the scripts are split from the seeds in the order of the scripts before
+ * any of them runs, so seeded results do not depend on which thread runs which script.
+ */
+final class ParallelRunner {
+
+    private final int parallelism;
+    private final Path outputDir;
+    private final RandomSource seeds;
+    private final int cacheSize;
+
+    /**
+     * @param parallelism Number of worker threads, or 0 for one per available processor
+     * @param outputDir Directory to write the result files to
+     * @param seeds Source of the seeds of the scripts, or null to use unseeded sources
+     * @param cacheSize Number of compiled lines cached for each script, or 0 to disable caching
+     */
+    ParallelRunner(int parallelism, Path outputDir, RandomSource seeds, int cacheSize) {
+        this.parallelism =
+                parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.outputDir = outputDir;
+        this.seeds = seeds;
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Run the scripts and wait for all of them to finish.
+     *
+     * @return the results of the scripts, in the order of the scripts
+     * @throws IllegalArgumentException if two scripts would write the same result file
+     */
+    List<Result> run(List<Path> scripts) throws IOException {
+        Set<Path> outputs = new HashSet<>();
+        List<ScriptTask> tasks = new ArrayList<>();
+        for (Path script : scripts) {
+            Path output = outputDir.resolve(script.getFileName() + ".out");
+            if (!outputs.add(output)) {
+                throw new IllegalArgumentException(
+                        "Result file written by multiple scripts: " + output);
+            }
+            tasks.add(new ScriptTask(script, output, seeds == null ? null : seeds.split(),
+                    cacheSize));
+        }
+        Files.createDirectories(outputDir);
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    ForkJoinTask.invokeAll(tasks);
+                }
+            });
+        } finally {
+            pool.shutdown();
+        }
+
+        List<Result> results = new ArrayList<>();
+        for (ScriptTask task : tasks) {
+            results.add(task.join());
+        }
+        return results;
+    }
+
+    /**
+     * Print the per-script timings and totals.
+     *
+     * @param results Results of the scripts
+     * @param wallNanos Wall-clock time of running all scripts
+     * @param out Stream to print to
+     * @return whether all scripts were run successfully
+     */
+    static boolean printSummary(List<Result> results, long wallNanos, PrintStream out) {
+        boolean success = true;
+        long commands = 0;
+        long nanos = 0;
+        out.printf("%-40s %12s %12s%n", "script", "commands", "time [ms]");
+        for (Result result : results) {
+            if (result.error != null) {
+                // unexpected errors are reported with their type
+                out.printf("%-40s FAILED: %s%n", result.script,
+                        result.error instanceof IOException
+                                ? result.error.getLocalizedMessage()
+                                : result.error.toString());
+                success = false;
+            } else {
+                out.printf("%-40s %12d %12.3f%n", result.script, result.commands,
+                        result.nanos / 1e6);
+                commands += result.commands;
+                nanos += result.nanos;
+            }
+        }
+        double seconds = wallNanos / 1e9;
+        out.printf("Executed %d commands from %d scripts in %.3f s (%.0f commands/s, "
+                + "%.3f s total script time)%n", commands, results.size(), seconds,
+                commands / seconds, nanos / 1e9);
+        return success;
+    }
+
+    /**
+     * Outcome of running a single script.
+     */
+    static final class Result {
+        final Path script;
+        final Path output;
+        final long commands;
+        final long nanos;
+        // error that stopped the script, or null
+        final Exception error;
+
+        Result(Path script, Path output, long commands, long nanos, Exception error) {
+            this.script = script;
+            this.output = output;
+            this.commands = commands;
+            this.nanos = nanos;
+            this.error = error;
+        }
+    }
+
+    private static final class ScriptTask extends RecursiveTask<Result> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path script;
+        private final Path output;
+        private final RandomSource seeds;
+        private final int cacheSize;
+
+        ScriptTask(Path script, Path output, RandomSource seeds, int cacheSize) {
+            this.script = script;
+            this.output = output;
+            this.seeds = seeds;
+            this.cacheSize = cacheSize;
+        }
+
+        @Override
+        protected Result compute() {
+            long start = System.nanoTime();
+            try (OutputStream out = Files.newOutputStream(output)) {
+                long commands = CommandLineInterface.runScript(script, out, seeds, cacheSize);
+                return new Result(script, output, commands, System.nanoTime() - start, null);
+            } catch (IOException | RuntimeException e) {
+                // a failing script must not stop the others
+                return new Result(script, output, 0, System.nanoTime() - start, e);
+            }
+        }
+    }
+}
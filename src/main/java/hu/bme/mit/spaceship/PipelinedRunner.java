@@ -0,0 +1,247 @@
+package hu.bme.mit.spaceship;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Runs a script on three threads: one reads and compiles the lines, one executes them and one
+ * writes the results.
+ *
+ * The reader compiles batches of lines into programs, exactly like the {@link Interpreter}
+ * compiles single lines, and hands them to the executing thread. The executing thread writes the
+ * results into chunks of memory which the writer passes on to the output. The stages are
+ * connected by bounded {@link SpscQueue}s, and the programs and chunks are recycled, so a long
+ * script runs in constant memory. Each stage handles its queue in order, so the output is the
+ * same as when the script is run on a single thread.
+ *
+ * A runner may be used for many scripts in turn, but not for many scripts at once.
+ */
+final class PipelinedRunner {
+
+    /** Number of lines compiled into a single program (unless a REPEAT block is open). */
+    static final int BATCH_LINES = 1024;
+
+    private static final int QUEUE_CAPACITY = 8;
+    private static final int CHUNK_SIZE = ResponseWriter.DEFAULT_BUFFER_SIZE;
+
+    // marks the end of the output
+    private static final Chunk END = new Chunk(0);
+
+    private final WaitStrategy wait;
+
+    private final SpscQueue<Batch> batches = new SpscQueue<>(QUEUE_CAPACITY);
+    private final SpscQueue<Batch> freeBatches = new SpscQueue<>(QUEUE_CAPACITY);
+    private final SpscQueue<Chunk> chunks = new SpscQueue<>(QUEUE_CAPACITY);
+    private final SpscQueue<Chunk> freeChunks = new SpscQueue<>(QUEUE_CAPACITY);
+
+    // whether the reader should stop, eg. because an EXIT command has been executed
+    private volatile boolean stopped;
+
+    // error that stopped the reader
+    private volatile Throwable failure;
+
+    /**
+     * @param wait How a stage waits for the stage before or after it
+     */
+    PipelinedRunner(WaitStrategy wait) {
+        this.wait = wait;
+    }
+
+    /**
+     * Handle lines until an EXIT command or the end of the input, on the calling thread and two
+     * additional threads.
+     *
+     * @param ctx Context to execute the commands in; its output is flushed at the end
+     * @param lines Lines of the script
+     * @return the number of commands handled
+     */
+    long run(Context ctx, LineReader lines) throws IOException {
+        ResponseWriter out = ctx.out;
+        stopped = false;
+        failure = null;
+
+        Thread reader = new Thread(() -> read(lines), "pipeline-reader");
+        Thread writer = new Thread(() -> write(out), "pipeline-writer");
+        reader.setDaemon(true);
+        writer.setDaemon(true);
+        reader.start();
+        writer.start();
+
+        ctx.out = out.format().writer(new ChunkOutput(), CHUNK_SIZE);
+        try {
+            execute(ctx);
+        } finally {
+            stopped = true;
+            ctx.out.flush();
+            put(chunks, END);
+            join(reader);
+            join(writer);
+            ctx.out = out;
+            // drop the batches read after an EXIT command
+            while (batches.poll() != null) {
+                continue;
+            }
+        }
+
+        Throwable e = failure;
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        } else if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        } else if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return ctx.commands;
+    }
+
+    /**
+     * Reader stage: compile the lines into batches.
+     */
+    private void read(LineReader lines) {
+        CommandTokenizer tokens = new CommandTokenizer();
+        Batch batch = newBatch();
+        try {
+            int count = 0;
+            boolean more = true;
+            while (more && !stopped) {
+                if (!lines.next()) {
+                    batch.compiler.finish();
+                    break;
+                }
+                if (tokens.tokenize(lines.buffer(), lines.start(), lines.end())) {
+                    more = batch.compiler.compile(tokens);
+                }
+                if (++count >= BATCH_LINES && !batch.compiler.isBlockOpen()) {
+                    if (!put(batches, batch)) {
+                        return;
+                    }
+                    batch = newBatch();
+                    count = 0;
+                }
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            // the complete commands read so far are still executed
+            batch.compiler.discardOpenBlocks();
+            failure = e;
+        } finally {
+            batch.last = true;
+            put(batches, batch);
+        }
+    }
+
+    /**
+     * Executing stage: execute the batches in order.
+     */
+    private void execute(Context ctx) {
+        boolean last = false;
+        while (!last) {
+            Batch batch = take(batches);
+            CommandResult result = batch.program.execute(ctx);
+            last = batch.last || result == CommandResult.EXIT;
+            batch.program.clear();
+            batch.last = false;
+            freeBatches.offer(batch);
+        }
+    }
+
+    /**
+     * Writer stage: write the chunks of results in order.
+     */
+    private void write(ResponseWriter out) {
+        Chunk chunk;
+        while ((chunk = take(chunks)) != END) {
+            out.write(chunk.bytes, chunk.length);
+            freeChunks.offer(chunk);
+        }
+        out.flush();
+    }
+
+    private Batch newBatch() {
+        Batch batch = freeBatches.poll();
+        return batch != null ? batch : new Batch();
+    }
+
+    /**
+     * Add an element to a queue, waiting for room if needed. Only the reader gives up waiting
+     * when the pipeline is stopped; the other stages always finish their work.
+     *
+     * @return false if the pipeline has been stopped before there was room
+     */
+    private <E> boolean put(SpscQueue<E> queue, E element) {
+        boolean reader = queue == batches;
+        for (long attempt = 0; !queue.offer(element); attempt++) {
+            if (reader && stopped) {
+                return false;
+            }
+            wait.idle(attempt);
+        }
+        return true;
+    }
+
+    private <E> E take(SpscQueue<E> queue) {
+        E element;
+        for (long attempt = 0; (element = queue.poll()) == null; attempt++) {
+            wait.idle(attempt);
+        }
+        return element;
+    }
+
+    private static void join(Thread thread) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Lines compiled together, with the compiler keeping track of their open blocks.
+     */
+    private static final class Batch {
+        final Program program = new Program();
+        final ScriptCompiler compiler = new ScriptCompiler(program, false);
+        // whether this is the last batch of the script
+        boolean last;
+    }
+
+    /**
+     * Results formatted by the executing stage.
+     */
+    private static final class Chunk {
+        final byte[] bytes;
+        int length;
+
+        Chunk(int size) {
+            this.bytes = new byte[size];
+        }
+    }
+
+    /**
+     * Output of the executing stage, passing the results to the writer in chunks.
+     */
+    private final class ChunkOutput extends OutputStream {
+
+        @Override
+        public void write(int b) {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            Chunk chunk = freeChunks.poll();
+            if (chunk == null || chunk.bytes.length < len) {
+                chunk = new Chunk(Math.max(CHUNK_SIZE, len));
+            }
+            System.arraycopy(b, off, chunk.bytes, 0, len);
+            chunk.length = len;
+            put(chunks, chunk);
+        }
+    }
+}
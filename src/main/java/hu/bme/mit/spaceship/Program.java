@@ -0,0 +1,561 @@
+package hu.bme.mit.spaceship;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compiled form of a sequence of commands.
+ *
+ * A program is a compact array of pre-validated instructions: numerical parameters are parsed,
+ * firing modes are resolved and invalid commands are replaced by the error they report. Executing
+ * a program does not parse anything, so the same program can be run over and over (eg. against
+ * fresh ships) at memory speed.
+ *
+ * Programs are built by the {@link ScriptCompiler}. Once built, a program is not modified, so it
+ * may be executed by multiple threads, each with its own context.
+ */
+final class Program {
+
+    // Opcodes. Each instruction is an opcode followed by its operands in the code array.
+
+    /** Operands: name, index of the ship configuration. */
+    static final int GT4500 = 0;
+    /** Operands: name, firing mode ordinal, number of torpedoes fired. */
+    static final int TORPEDO = 1;
+    /** Operands: message index, name of the ship required before reporting the error. */
+    static final int ERROR = 2;
+    static final int HELP = 3;
+    static final int EXIT = 4;
+    /** Operands: repeat count, length of the body, whether to summarize the results. */
+    static final int REPEAT = 5;
+    /** Operands: path of the script (in the name pool), as a name. */
+    static final int SUBMIT_SCRIPT = 6;
+    /**
+     * Operands: number of runs, primary count, secondary count, index of the two failure rates,
+     * firing mode ordinal.
+     */
+    static final int SUBMIT_FIRE = 7;
+    /** Operands: job number, or {@link #ALL_JOBS}. */
+    static final int POLL = 8;
+    /** Operands: job number. */
+    static final int CANCEL = 9;
+
+    /** Job number standing for all the jobs of the session. */
+    static final int ALL_JOBS = -1;
+
+    // Ship names are encoded as two operands: offset in the name pool and length. These special
+    // offsets stand for the unnamed ship and for no ship at all.
+    static final int UNNAMED = -1;
+    static final int NO_SHIP = -2;
+
+    private static final FiringMode[] firingModes = FiringMode.values();
+
+    private int[] code;
+    private int codeLength;
+
+    private double[] constants;
+    private int constantCount;
+
+    private byte[] names;
+    private ByteBuffer nameBuffer;
+    private int namesLength;
+
+    private final List<String> messages;
+
+    // interned ship configurations, resolved at compile time
+    private final List<ShipConfig> configs;
+
+    // number of instructions
+    private int size;
+
+    Program() {
+        this(new int[64], new double[16], new byte[64], new ArrayList<>(), new ArrayList<>());
+    }
+
+    private Program(int[] code, double[] constants, byte[] names, List<String> messages,
+            List<ShipConfig> configs) {
+        this.code = code;
+        this.constants = constants;
+        this.names = names;
+        this.nameBuffer = ByteBuffer.wrap(names);
+        this.messages = messages;
+        this.configs = configs;
+    }
+
+    /**
+     * @return a copy of the program whose buffers are trimmed to its size
+     */
+    Program copy() {
+        Program copy = new Program(Arrays.copyOf(code, codeLength),
+                Arrays.copyOf(constants, constantCount), Arrays.copyOf(names, namesLength),
+                new ArrayList<>(messages), new ArrayList<>(configs));
+        copy.codeLength = codeLength;
+        copy.constantCount = constantCount;
+        copy.namesLength = namesLength;
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * @return the number of instructions (ie. commands) in the program
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the length of the code, ie. the position of the next instruction
+     */
+    int position() {
+        return codeLength;
+    }
+
+    /**
+     * Remove the instructions after a position.
+     *
+     * @param position Position of the first instruction removed
+     * @param size Number of instructions before the position
+     */
+    void truncate(int position, int size) {
+        codeLength = position;
+        this.size = size;
+    }
+
+    /**
+     * Remove all instructions, keeping the allocated buffers for reuse.
+     */
+    void clear() {
+        codeLength = 0;
+        constantCount = 0;
+        namesLength = 0;
+        messages.clear();
+        configs.clear();
+        size = 0;
+    }
+
+    /**
+     * Copy a ship name into the name pool of the program.
+     *
+     * @return the offset of the name in the pool
+     */
+    int addName(ByteBuffer buffer, int from, int to) {
+        int length = to - from;
+        if (namesLength + length > names.length) {
+            byte[] grown = new byte[Math.max(names.length * 2, namesLength + length)];
+            System.arraycopy(names, 0, grown, 0, namesLength);
+            names = grown;
+            nameBuffer = ByteBuffer.wrap(names);
+        }
+        int offset = namesLength;
+        for (int i = 0; i < length; i++) {
+            names[offset + i] = buffer.get(from + i);
+        }
+        namesLength += length;
+        return offset;
+    }
+
+    void addGT4500(int nameOffset, int nameLength, int primaryCount, double primaryFailRate,
+            int secondaryCount, double secondaryFailRate) {
+        configs.add(
+                ShipConfig.of(primaryCount, primaryFailRate, secondaryCount, secondaryFailRate));
+        addOpcode(GT4500, 3);
+        addOperand(nameOffset);
+        addOperand(nameLength);
+        addOperand(configs.size() - 1);
+    }
+
+    void addTorpedo(int nameOffset, int nameLength, FiringMode firingMode, int count) {
+        addOpcode(TORPEDO, 4);
+        addOperand(nameOffset);
+        addOperand(nameLength);
+        addOperand(firingMode.ordinal());
+        addOperand(count);
+    }
+
+    /**
+     * Start a block executed repeatedly; the body is the instructions added until
+     * {@link #endRepeat(int)} is called.
+     *
+     * @param count Number of times the body is executed
+     * @param summary Whether to report only the number of successes, failures and errors
+     */
+    void addRepeat(int count, boolean summary) {
+        addOpcode(REPEAT, 3);
+        addOperand(count);
+        addOperand(0);
+        addOperand(summary ? 1 : 0);
+    }
+
+    /**
+     * End a block started by {@link #addRepeat(int, boolean)}.
+     *
+     * @param position Position of the REPEAT instruction
+     */
+    void endRepeat(int position) {
+        code[position + 2] = codeLength - position - 4;
+    }
+
+    /**
+     * Add an instruction reporting an error.
+     *
+     * If the ship given is missing when the instruction is executed, the missing ship is reported
+     * instead of the message.
+     *
+     * @param message The message to report
+     * @param nameOffset Offset of the name of the ship in the name pool, or {@link #UNNAMED} or
+     *     {@link #NO_SHIP}
+     * @param nameLength Length of the name
+     */
+    void addError(String message, int nameOffset, int nameLength) {
+        messages.add(message);
+        addOpcode(ERROR, 3);
+        addOperand(messages.size() - 1);
+        addOperand(nameOffset);
+        addOperand(nameLength);
+    }
+
+    /**
+     * Add an instruction submitting a job running a script.
+     *
+     * @param pathOffset Offset of the path of the script in the name pool
+     * @param pathLength Length of the path
+     */
+    void addSubmitScript(int pathOffset, int pathLength) {
+        addOpcode(SUBMIT_SCRIPT, 2);
+        addOperand(pathOffset);
+        addOperand(pathLength);
+    }
+
+    /**
+     * Add an instruction submitting a job firing GT4500s of a configuration until they are empty.
+     */
+    void addSubmitFire(int runs, int primaryCount, double primaryFailRate, int secondaryCount,
+            double secondaryFailRate, FiringMode firingMode) {
+        int index = addConstants(primaryFailRate, secondaryFailRate);
+        addOpcode(SUBMIT_FIRE, 5);
+        addOperand(runs);
+        addOperand(primaryCount);
+        addOperand(secondaryCount);
+        addOperand(index);
+        addOperand(firingMode.ordinal());
+    }
+
+    /**
+     * @param job Number of the job to report, or {@link #ALL_JOBS}
+     */
+    void addPoll(int job) {
+        addOpcode(POLL, 1);
+        addOperand(job);
+    }
+
+    void addCancel(int job) {
+        addOpcode(CANCEL, 1);
+        addOperand(job);
+    }
+
+    void addHelp() {
+        addOpcode(HELP, 0);
+    }
+
+    void addExit() {
+        addOpcode(EXIT, 0);
+    }
+
+    /**
+     * Execute the program.
+     *
+     * If the command counter of the context reaches its limit, the rest of the program is skipped
+     * and the limit is reported; TORPEDO and REPEAT commands whose count would exceed the limit
+     * are not started at all.
+     *
+     * @param ctx The context to execute the program in
+     * @return whether execution should continue after the program
+     */
+    CommandResult execute(Context ctx) {
+        CommandResult result = execute(ctx, 0, codeLength);
+        if (result == CommandResult.ABORT) {
+            ctx.error(CommandError.COMMAND_LIMIT.message());
+            return CommandResult.CONTINUE;
+        }
+        return result;
+    }
+
+    /**
+     * Execute the instructions in a range of the code.
+     */
+    private CommandResult execute(Context ctx, int from, int to) {
+        int[] code = this.code;
+        int pc = from;
+        while (pc < to) {
+            ctx.commands++;
+            switch (code[pc]) {
+                case GT4500:
+                    executeGT4500(ctx, code[pc + 1], code[pc + 2], configs.get(code[pc + 3]));
+                    pc += 4;
+                    break;
+                case TORPEDO:
+                    if (code[pc + 4] > ctx.commandLimit - ctx.commands) {
+                        return CommandResult.ABORT;
+                    }
+                    executeTorpedo(ctx, code[pc + 1], code[pc + 2], firingModes[code[pc + 3]],
+                            code[pc + 4]);
+                    pc += 5;
+                    break;
+                case ERROR:
+                    if (code[pc + 2] == NO_SHIP || ship(ctx, code[pc + 2], code[pc + 3]) != null) {
+                        ctx.error(messages.get(code[pc + 1]));
+                    }
+                    pc += 4;
+                    break;
+                case REPEAT:
+                    if (code[pc + 1] > ctx.commandLimit - ctx.commands) {
+                        return CommandResult.ABORT;
+                    }
+                    CommandResult result = executeRepeat(ctx, pc + 4, code[pc + 1], code[pc + 2],
+                            code[pc + 3] != 0);
+                    if (result != CommandResult.CONTINUE) {
+                        return result;
+                    }
+                    pc += 4 + code[pc + 2];
+                    break;
+                case SUBMIT_SCRIPT:
+                    if (!ctx.scriptJobsEnabled) {
+                        ctx.error(CommandError.SCRIPT_JOBS_DISABLED.message());
+                    } else if (jobsEnabled(ctx)) {
+                        submitted(ctx, ctx.jobs().submitScript(name(code[pc + 1], code[pc + 2]),
+                                jobGenerator(ctx)));
+                    }
+                    pc += 3;
+                    break;
+                case SUBMIT_FIRE:
+                    if (jobsEnabled(ctx)) {
+                        submitted(ctx, ctx.jobs().submitFire(code[pc + 1], code[pc + 2],
+                                constants[code[pc + 4]], code[pc + 3],
+                                constants[code[pc + 4] + 1], firingModes[code[pc + 5]],
+                                jobGenerator(ctx)));
+                    }
+                    pc += 6;
+                    break;
+                case POLL:
+                    if (jobsEnabled(ctx)) {
+                        executePoll(ctx, code[pc + 1]);
+                    }
+                    pc += 2;
+                    break;
+                case CANCEL:
+                    if (jobsEnabled(ctx)) {
+                        report(ctx, code[pc + 1], ctx.jobs().cancel(code[pc + 1]));
+                    }
+                    pc += 2;
+                    break;
+                case HELP:
+                    for (String line : ScriptCompiler.HELP) {
+                        ctx.out.println(line);
+                    }
+                    pc += 1;
+                    break;
+                case EXIT:
+                    return CommandResult.EXIT;
+                default:
+                    throw new IllegalStateException("Invalid opcode: " + code[pc]);
+            }
+        }
+        return CommandResult.CONTINUE;
+    }
+
+    /**
+     * Encode the program in the {@link BinaryFormat}.
+     *
+     * @throws IllegalArgumentException if an instruction has no binary form (eg. an error)
+     */
+    void encode(BinaryEncoder encoder) throws IOException {
+        int pc = 0;
+        while (pc < codeLength) {
+            switch (code[pc]) {
+                case GT4500:
+                    ShipConfig config = configs.get(code[pc + 3]);
+                    encoder.gt4500(name(code[pc + 1], code[pc + 2]),
+                            config.getPrimary().getTorpedoCount(),
+                            config.getPrimary().getFailureRate(),
+                            config.getSecondary().getTorpedoCount(),
+                            config.getSecondary().getFailureRate());
+                    pc += 4;
+                    break;
+                case TORPEDO:
+                    encoder.torpedo(name(code[pc + 1], code[pc + 2]), firingModes[code[pc + 3]],
+                            code[pc + 4]);
+                    pc += 5;
+                    break;
+                case EXIT:
+                    encoder.exit();
+                    pc += 1;
+                    break;
+                case ERROR:
+                    throw new IllegalArgumentException(messages.get(code[pc + 1]));
+                default:
+                    throw new IllegalArgumentException("Command has no binary form");
+            }
+        }
+    }
+
+    /**
+     * @return the name of a ship, or null for the unnamed ship
+     */
+    private String name(int nameOffset, int nameLength) {
+        return nameOffset == UNNAMED
+                ? null
+                : new String(names, nameOffset, nameLength, Charset.defaultCharset());
+    }
+
+    private void executeGT4500(Context ctx, int nameOffset, int nameLength, ShipConfig config) {
+        SpaceShip ship = ctx.newGT4500(config);
+        if (nameOffset == UNNAMED) {
+            ctx.ship = ship;
+        } else {
+            ctx.ships().put(nameBuffer, nameOffset, nameOffset + nameLength, ship);
+        }
+        ctx.result(true);
+    }
+
+    private void executeTorpedo(Context ctx, int nameOffset, int nameLength, FiringMode mode,
+            int count) {
+        SpaceShip ship = ship(ctx, nameOffset, nameLength);
+        if (ship != null) {
+            for (int i = 0; i < count; i++) {
+                ctx.result(ship.fireTorpedo(mode));
+            }
+        }
+        if (count > 1) {
+            // every torpedo fired counts as a command
+            ctx.commands += count - 1;
+        }
+    }
+
+    private CommandResult executeRepeat(Context ctx, int body, int count, int bodyLength,
+            boolean summary) {
+        if (summary) {
+            ctx.beginSummary();
+        }
+        try {
+            for (int i = 0; i < count; i++) {
+                if (ctx.cancelled) {
+                    return CommandResult.EXIT;
+                }
+                if (ctx.commands >= ctx.commandLimit) {
+                    return CommandResult.ABORT;
+                }
+                CommandResult result = execute(ctx, body, body + bodyLength);
+                if (result != CommandResult.CONTINUE) {
+                    return result;
+                }
+            }
+            return CommandResult.CONTINUE;
+        } finally {
+            if (summary) {
+                ctx.endSummary();
+            }
+        }
+    }
+
+    /**
+     * @return whether job commands may be used, reporting if they may not
+     */
+    private static boolean jobsEnabled(Context ctx) {
+        if (!ctx.jobsEnabled) {
+            ctx.error(CommandError.JOBS_DISABLED.message());
+            return false;
+        }
+        return true;
+    }
+
+    private static void executePoll(Context ctx, int job) {
+        if (job != ALL_JOBS) {
+            report(ctx, job, ctx.jobs().status(job));
+        } else if (ctx.jobs == null || ctx.jobs.statuses().isEmpty()) {
+            ctx.out.println("No jobs");
+        } else {
+            for (String status : ctx.jobs.statuses()) {
+                ctx.out.println(status);
+            }
+        }
+    }
+
+    private static void submitted(Context ctx, int job) {
+        ctx.out.println("JOB " + job + ": SUBMITTED");
+    }
+
+    /**
+     * Report the status of a job, or that it does not exist.
+     */
+    private static void report(Context ctx, int job, String status) {
+        if (status == null) {
+            ctx.error(CommandError.UNKNOWN_JOB.message(Integer.toString(job)));
+        } else {
+            ctx.out.println(status);
+        }
+    }
+
+    /**
+     * @return the random source of a job, or null if the ships of the context are unseeded
+     */
+    private static RandomSource jobGenerator(Context ctx) {
+        return ctx.seeds == null ? null : ctx.seeds.split();
+    }
+
+    /**
+     * Look up a ship, reporting if it is missing.
+     *
+     * @return the ship, or null if it does not exist
+     */
+    private SpaceShip ship(Context ctx, int nameOffset, int nameLength) {
+        SpaceShip ship;
+        if (nameOffset == UNNAMED) {
+            ship = ctx.ship;
+            if (ship == null) {
+                ctx.error(CommandError.NO_SHIP.message());
+            }
+        } else {
+            ship = ctx.ships == null
+                    ? null
+                    : ctx.ships.get(nameBuffer, nameOffset, nameOffset + nameLength);
+            if (ship == null) {
+                ctx.error(CommandError.UNKNOWN_SHIP.message(
+                        new String(names, nameOffset, nameLength, Charset.defaultCharset())));
+            }
+        }
+        return ship;
+    }
+
+    private int addConstants(double first, double second) {
+        if (constantCount + 2 > constants.length) {
+            double[] grown = new double[Math.max(constants.length * 2, constantCount + 2)];
+            System.arraycopy(constants, 0, grown, 0, constantCount);
+            constants = grown;
+        }
+        constants[constantCount] = first;
+        constants[constantCount + 1] = second;
+        constantCount += 2;
+        return constantCount - 2;
+    }
+
+    /**
+     * Start a new instruction, making room for its operands.
+     */
+    private void addOpcode(int opcode, int operandCount) {
+        if (codeLength + 1 + operandCount > code.length) {
+            int[] grown = new int[Math.max(code.length * 2, codeLength + 1 + operandCount)];
+            System.arraycopy(code, 0, grown, 0, codeLength);
+            code = grown;
+        }
+        code[codeLength++] = opcode;
+        size++;
+    }
+
+    private void addOperand(int operand) {
+        code[codeLength++] = operand;
+    }
+}
@@ -0,0 +1,74 @@
+package hu.bme.mit.spaceship;
+
+import java.util.Random;
+
+/**
+ * Source of the random numbers simulating the failures of the ships.
+ *
+ * Sources are not thread-safe: each one is meant to be used by a single thread at a time. A
+ * source can be {@link #split() split} into an independent one, eg. for each ship or for each
+ * run of a script, so that runs on many threads are reproducible from a single seed as long as
+ * the sources are split in the same order.
+ */
+public interface RandomSource {
+
+    /**
+     * @return a uniformly distributed value in [0.0, 1.0)
+     */
+    double nextDouble();
+
+    /**
+     * @return a uniformly distributed long value
+     */
+    long nextLong();
+
+    /**
+     * Create a new source whose numbers are independent of this one. This source advances, so
+     * splitting it repeatedly gives different sources.
+     */
+    RandomSource split();
+
+    /**
+     * Create the default (fast, non-synchronized) source with a given seed.
+     */
+    static RandomSource seeded(long seed) {
+        return new XoroshiroRandom(seed);
+    }
+
+    /**
+     * Create the default source with a seed that differs on each call.
+     */
+    static RandomSource create() {
+        return new XoroshiroRandom(XoroshiroRandom.uniqueSeed());
+    }
+
+    /**
+     * @return the unseeded source of the current thread, shared by the ships without a source of
+     *     their own
+     */
+    static RandomSource current() {
+        return XoroshiroRandom.CURRENT.get();
+    }
+
+    /**
+     * Adapt a {@link Random}, eg. to reproduce the results of an existing seeded generator.
+     */
+    static RandomSource of(Random random) {
+        return new RandomSource() {
+            @Override
+            public double nextDouble() {
+                return random.nextDouble();
+            }
+
+            @Override
+            public long nextLong() {
+                return random.nextLong();
+            }
+
+            @Override
+            public RandomSource split() {
+                return of(new Random(random.nextLong()));
+            }
+        };
+    }
+}
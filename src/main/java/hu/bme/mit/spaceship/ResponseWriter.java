@@ -0,0 +1,176 @@
+package hu.bme.mit.spaceship;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Buffered sink for the responses of the command line interface.
+ *
+ * The fixed responses are encoded once, so reporting the result of a command is a plain array
+ * copy into a large reusable buffer. The buffer is written to the underlying stream when it is
+ * full or when {@link #flush()} is called explicitly, eg. at the end of a batch or before waiting
+ * for interactive input. If auto flush is enabled, the buffer is flushed after every response.
+ *
+ * This writer writes one line per response; subclasses write the more compact
+ * {@link OutputFormat}s.
+ *
+ * Like {@link java.io.PrintStream}, the writer never throws I/O exceptions; use
+ * {@link #checkError()} to find out whether writing failed.
+ */
+class ResponseWriter implements Flushable {
+
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes();
+    private static final byte[] SUCCESS = encodeLine("SUCCESS");
+    private static final byte[] FAIL = encodeLine("FAIL");
+
+    private final OutputStream out;
+
+    private final byte[] buffer;
+    private int count;
+
+    private boolean autoFlush;
+    private boolean trouble;
+
+    ResponseWriter(OutputStream out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    ResponseWriter(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * @return the format of the results written
+     */
+    OutputFormat format() {
+        return OutputFormat.TEXT;
+    }
+
+    /**
+     * @param autoFlush whether to flush after every response (for interactive sessions)
+     */
+    void setAutoFlush(boolean autoFlush) {
+        this.autoFlush = autoFlush;
+    }
+
+    /**
+     * Report the result of a command that may succeed or fail.
+     */
+    void result(boolean success) {
+        write(success ? SUCCESS : FAIL);
+    }
+
+    /**
+     * Write a message followed by a line separator.
+     */
+    void println(String message) {
+        int length = message.length();
+        if (!isAscii(message) || length > buffer.length) {
+            // let the platform charset encode it
+            writeBytes(message.getBytes());
+        } else {
+            if (length > buffer.length - count) {
+                flushBuffer();
+            }
+            for (int i = 0; i < length; i++) {
+                buffer[count++] = (byte) message.charAt(i);
+            }
+        }
+        write(LINE_SEPARATOR);
+    }
+
+    /**
+     * Write responses that have already been encoded, eg. by another writer.
+     *
+     * @param responses Complete responses, including their line separators
+     * @param length Number of bytes to write
+     */
+    void write(byte[] responses, int length) {
+        if (length > buffer.length - count) {
+            flushBuffer();
+            if (length >= buffer.length) {
+                writeOut(responses, length);
+                return;
+            }
+        }
+        System.arraycopy(responses, 0, buffer, count, length);
+        count += length;
+    }
+
+    /**
+     * Write the buffered responses to the underlying stream and flush it.
+     */
+    @Override
+    public void flush() {
+        flushBuffer();
+        try {
+            out.flush();
+        } catch (IOException e) {
+            trouble = true;
+        }
+    }
+
+    /**
+     * Flush the writer and check its error state.
+     *
+     * @return whether writing to the underlying stream failed
+     */
+    boolean checkError() {
+        flush();
+        return trouble;
+    }
+
+    /**
+     * Write a complete response (including the line separator).
+     */
+    private void write(byte[] response) {
+        writeBytes(response);
+        if (autoFlush) {
+            flush();
+        }
+    }
+
+    private void writeBytes(byte[] bytes) {
+        if (bytes.length > buffer.length - count) {
+            flushBuffer();
+            if (bytes.length > buffer.length) {
+                writeOut(bytes, bytes.length);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    private void flushBuffer() {
+        if (count > 0) {
+            writeOut(buffer, count);
+            count = 0;
+        }
+    }
+
+    private void writeOut(byte[] bytes, int length) {
+        try {
+            out.write(bytes, 0, length);
+        } catch (IOException e) {
+            trouble = true;
+        }
+    }
+
+    private static boolean isAscii(String message) {
+        for (int i = 0; i < message.length(); i++) {
+            if (message.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] encodeLine(String response) {
+        return (response + System.lineSeparator()).getBytes();
+    }
+}
@@ -0,0 +1,133 @@
+package hu.bme.mit.spaceship;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Writer collapsing runs of identical results into a single line, eg. <code>SUCCESS x1000</code>.
+ *
+ * Other lines are written as they are. A run is written when a different response follows it or
+ * when the writer is flushed, so a long run may be split into a few lines.
+ */
+final class RunLengthWriter extends ResponseWriter {
+
+    private static final String SUCCESS = "SUCCESS";
+    private static final String FAIL = "FAIL";
+    private static final String TIMES = " x";
+
+    private static final byte[] SUCCESS_RUN = (SUCCESS + TIMES).getBytes();
+    private static final byte[] FAIL_RUN = (FAIL + TIMES).getBytes();
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes();
+
+    // a run line being formatted
+    private final byte[] line = new byte[SUCCESS_RUN.length + 20 + LINE_SEPARATOR.length];
+
+    // result of the current run, and the number of results in it
+    private boolean success;
+    private long run;
+
+    RunLengthWriter(OutputStream out, int bufferSize) {
+        super(out, bufferSize);
+    }
+
+    @Override
+    OutputFormat format() {
+        return OutputFormat.RLE;
+    }
+
+    @Override
+    void result(boolean success) {
+        if (run > 0 && success != this.success) {
+            endRun();
+        }
+        this.success = success;
+        run++;
+    }
+
+    @Override
+    void println(String message) {
+        endRun();
+        super.println(message);
+    }
+
+    @Override
+    public void flush() {
+        endRun();
+        super.flush();
+    }
+
+    private void endRun() {
+        long length = run;
+        if (length == 0) {
+            return;
+        }
+        run = 0;
+        if (length == 1) {
+            super.result(success);
+            return;
+        }
+        // format the line without creating strings, runs of a few results are common
+        byte[] prefix = success ? SUCCESS_RUN : FAIL_RUN;
+        System.arraycopy(prefix, 0, line, 0, prefix.length);
+        int digits = 1;
+        for (long rest = length / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        int end = prefix.length + digits;
+        for (int i = end - 1; i >= prefix.length; i--) {
+            line[i] = (byte) ('0' + length % 10);
+            length /= 10;
+        }
+        System.arraycopy(LINE_SEPARATOR, 0, line, end, LINE_SEPARATOR.length);
+        write(line, end + LINE_SEPARATOR.length);
+    }
+
+    /**
+     * Convert results written in this format back to the text format.
+     *
+     * @param lines Lines of the results
+     * @param out Writer of the text format
+     */
+    static void expand(LineReader lines, ResponseWriter out) throws IOException {
+        while (lines.next()) {
+            ByteBuffer buffer = lines.buffer();
+            String line = new String(ByteSlices.copy(buffer, lines.start(), lines.end()),
+                    Charset.defaultCharset());
+            long length = runLength(line, SUCCESS);
+            boolean result = true;
+            if (length == 0) {
+                length = runLength(line, FAIL);
+                result = false;
+            }
+            if (length == 0) {
+                out.println(line);
+            }
+            for (long i = 0; i < length; i++) {
+                out.result(result);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * @return the length of the run in a line, or 0 if the line is not a run of the result
+     */
+    private static long runLength(String line, String result) {
+        int digits = result.length() + TIMES.length();
+        if (!line.startsWith(result + TIMES) || line.length() == digits) {
+            return 0;
+        }
+        for (int i = digits; i < line.length(); i++) {
+            if (line.charAt(i) < '0' || line.charAt(i) > '9') {
+                return 0;
+            }
+        }
+        try {
+            return Long.parseLong(line.substring(digits));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,467 @@
+package hu.bme.mit.spaceship;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiles commands into a {@link Program}.
+ *
+ * The compiler either produces code for an existing context whose ships are only known when the
+ * code is executed (eg. when commands are executed line by line), or for a fresh context. In the
+ * latter case the compiler keeps track of the ships created so far, so errors like firing
+ * torpedoes before creating a ship are resolved at compile time.
+ */
+final class ScriptCompiler {
+
+    private static final Map<String, Handler> handlers = Map.of(
+        "HELP", ScriptCompiler::compileHelp,
+        "GT4500", ScriptCompiler::compileGT4500,
+        "TORPEDO", ScriptCompiler::compileTorpedo,
+        "REPEAT", ScriptCompiler::compileRepeat,
+        "END", ScriptCompiler::compileEnd,
+        "EXIT", ScriptCompiler::compileExit,
+        "SUBMIT", ScriptCompiler::compileSubmit,
+        "POLL", ScriptCompiler::compilePoll,
+        "CANCEL", ScriptCompiler::compileCancel
+    );
+
+    /** Lines printed by the HELP command. */
+    static final List<String> HELP = List.of(
+        "Available commands: " + handlers.keySet(),
+        "Generally, commands receive parameters; refer to the documentation",
+        "Before firing torpedoes using the TORPEDO command, you must initialize a ship (eg. a GT4500) using its name as a command",
+        "To use multiple ships, give them a name as their first parameter (eg. GT4500,alpha,10,0.1,10,0.1 and TORPEDO,alpha,SINGLE)",
+        "To fire torpedoes repeatedly, pass a count after the firing mode (eg. TORPEDO,SINGLE,100)",
+        "TORPEDO,SALVO fires all the torpedoes of a ship at once, each of them failing independently; it succeeds if any of them is launched",
+        "Commands between REPEAT,<COUNT> and END are executed COUNT times; with REPEAT,<COUNT>,SUMMARY only the number of successes, failures and errors is reported",
+        "Jobs run in the background: SUBMIT,SCRIPT,<FILE> runs a script and SUBMIT,FIRE,<RUNS>,<GT4500 parameters>,<MODE> fires RUNS ships until they are empty; POLL,<JOB> (or POLL for all jobs) reports their progress and CANCEL,<JOB> stops them"
+    );
+
+    private static final byte[] SUMMARY = "SUMMARY".getBytes();
+    private static final byte[] SCRIPT = "SCRIPT".getBytes();
+    private static final byte[] FIRE = "FIRE".getBytes();
+
+    // upper case command names and their handlers, for allocation-free dispatching
+    private static final byte[][] handlerNames = new byte[handlers.size()][];
+    private static final Handler[] handlerTable = new Handler[handlers.size()];
+
+    // upper case firing mode names, indexed by ordinal
+    private static final FiringMode[] firingModes = FiringMode.values();
+    private static final byte[][] firingModeNames = new byte[firingModes.length][];
+
+    static {
+        for (FiringMode mode : firingModes) {
+            firingModeNames[mode.ordinal()] = mode.name().getBytes();
+        }
+
+        int i = 0;
+        for (Map.Entry<String, Handler> entry : handlers.entrySet()) {
+            handlerNames[i] = entry.getKey().getBytes();
+            handlerTable[i] = entry.getValue();
+            i++;
+        }
+    }
+
+    private final Program program;
+
+    // whether the code is compiled for a fresh context
+    private final boolean fresh;
+    // ships created so far when compiling for a fresh context
+    private boolean shipCreated;
+    private final Set<String> namedShipsCreated = new HashSet<>();
+
+    // ship that must exist when the error of the current command is reported
+    private int requiredNameOffset;
+    private int requiredNameLength;
+
+    // message of the error of the current command
+    private String errorMessage;
+
+    // whether the last command compiled was EXIT
+    private boolean exit;
+
+    // code positions and program sizes at the start of the open REPEAT blocks
+    private final Deque<int[]> blocks = new ArrayDeque<>();
+
+    /**
+     * @param program The program to append the compiled commands to
+     * @param fresh Whether the program will be executed in fresh contexts
+     */
+    ScriptCompiler(Program program, boolean fresh) {
+        this.program = program;
+        this.fresh = fresh;
+    }
+
+    /**
+     * @return the names of the available commands
+     */
+    static Set<String> commandNames() {
+        return handlers.keySet();
+    }
+
+    /**
+     * Compile a script for execution in fresh contexts.
+     *
+     * Compilation stops at the first EXIT command, as the rest of the script is never executed.
+     */
+    static Program compile(LineReader lines) throws IOException {
+        Program program = new Program();
+        ScriptCompiler compiler = new ScriptCompiler(program, true);
+        CommandTokenizer tokens = new CommandTokenizer();
+        while (lines.next()) {
+            if (tokens.tokenize(lines.buffer(), lines.start(), lines.end())
+                    && !compiler.compile(tokens)) {
+                break;
+            }
+        }
+        compiler.finish();
+        return program;
+    }
+
+    /**
+     * @return whether a REPEAT block is open, ie. the compiled code cannot be executed yet
+     */
+    boolean isBlockOpen() {
+        return !blocks.isEmpty();
+    }
+
+    /**
+     * Finish compilation at the end of the input: blocks left open are replaced by an error.
+     */
+    void finish() {
+        if (!blocks.isEmpty()) {
+            discardOpenBlocks();
+            program.addError(CommandError.MISSING_END.message(), Program.NO_SHIP, 0);
+        }
+    }
+
+    /**
+     * Remove the code of the blocks left open, eg. when the input cannot be read any further.
+     */
+    void discardOpenBlocks() {
+        if (!blocks.isEmpty()) {
+            int[] outermost = blocks.getLast();
+            blocks.clear();
+            program.truncate(outermost[0], outermost[1]);
+        }
+    }
+
+    /**
+     * Compile a tokenized command.
+     *
+     * @return false if the command is an EXIT outside of any block, true otherwise
+     */
+    boolean compile(CommandTokenizer tokens) {
+        requiredNameOffset = Program.NO_SHIP;
+        requiredNameLength = 0;
+        exit = false;
+        Handler handler = null;
+        for (int i = 0; i < handlerNames.length && handler == null; i++) {
+            if (tokens.equalsIgnoreCase(0, handlerNames[i])) {
+                handler = handlerTable[i];
+            }
+        }
+        CommandError error = handler == null
+                ? error(CommandError.UNKNOWN_COMMAND, tokens.token(0).toUpperCase())
+                : handler.compile(this, tokens);
+        if (error != CommandError.NONE) {
+            program.addError(errorMessage, requiredNameOffset, requiredNameLength);
+        }
+        return !exit || isBlockOpen();
+    }
+
+    /**
+     * Record the message of an error.
+     *
+     * @return the error
+     */
+    private CommandError error(CommandError error) {
+        errorMessage = error.message();
+        return error;
+    }
+
+    /**
+     * Record the message of an error with an argument.
+     *
+     * @return the error
+     */
+    private CommandError error(CommandError error, String argument) {
+        errorMessage = error.message(argument);
+        return error;
+    }
+
+    /**
+     * Require a ship for the rest of the command: if the ship is missing, that is reported
+     * instead of any other error of the command.
+     *
+     * @return the error if the ship is known to be missing, {@link CommandError#NONE} otherwise
+     */
+    private CommandError requireShip(int nameOffset, int nameLength, CommandTokenizer params,
+            int name) {
+        if (!fresh) {
+            requiredNameOffset = nameOffset;
+            requiredNameLength = nameLength;
+        } else if (nameOffset == Program.UNNAMED) {
+            if (!shipCreated) {
+                return error(CommandError.NO_SHIP);
+            }
+        } else if (!namedShipsCreated.contains(params.token(name))) {
+            return error(CommandError.UNKNOWN_SHIP, params.token(name));
+        }
+        return CommandError.NONE;
+    }
+
+    /**
+     * Compile the HELP command.
+     */
+    private static CommandError compileHelp(ScriptCompiler compiler, CommandTokenizer params) {
+        compiler.program.addHelp();
+        return CommandError.NONE;
+    }
+
+    /**
+     * Compile the GT4500 command.
+     */
+    private static CommandError compileGT4500(ScriptCompiler compiler, CommandTokenizer params) {
+        boolean named = params.count() == 6;
+        if (params.count() != 5 && !named) {
+            return compiler.error(CommandError.GT4500_USAGE);
+        }
+
+        int arg = named ? 2 : 1;
+        if (!params.tryParseInt(arg)) {
+            return compiler.invalidNumber(params);
+        }
+        int primaryCount = params.intValue();
+        if (!params.tryParseDouble(arg + 1)) {
+            return compiler.invalidNumber(params);
+        }
+        double primaryFailRate = params.doubleValue();
+        if (!params.tryParseInt(arg + 2)) {
+            return compiler.invalidNumber(params);
+        }
+        int secondaryCount = params.intValue();
+        if (!params.tryParseDouble(arg + 3)) {
+            return compiler.invalidNumber(params);
+        }
+        double secondaryFailRate = params.doubleValue();
+
+        int nameOffset = Program.UNNAMED;
+        int nameLength = 0;
+        if (named) {
+            nameOffset = compiler.program.addName(params.buffer(), params.start(1), params.end(1));
+            nameLength = params.end(1) - params.start(1);
+            if (compiler.fresh) {
+                compiler.namedShipsCreated.add(params.token(1));
+            }
+        } else {
+            compiler.shipCreated = true;
+        }
+        compiler.program.addGT4500(nameOffset, nameLength, primaryCount, primaryFailRate,
+                secondaryCount, secondaryFailRate);
+        return CommandError.NONE;
+    }
+
+    /**
+     * Compile the TORPEDO command.
+     */
+    private static CommandError compileTorpedo(ScriptCompiler compiler, CommandTokenizer params) {
+        // TORPEDO,<MODE>,<COUNT> and TORPEDO,<NAME>,<MODE> both have three parameters
+        boolean named = params.count() == 4 || params.count() == 3
+                && (firingMode(params, 1) == null || firingMode(params, 2) != null);
+        int nameOffset = Program.UNNAMED;
+        int nameLength = 0;
+        if (named) {
+            nameOffset = compiler.program.addName(params.buffer(), params.start(1), params.end(1));
+            nameLength = params.end(1) - params.start(1);
+        }
+        CommandError error = compiler.requireShip(nameOffset, nameLength, params, 1);
+        if (error != CommandError.NONE) {
+            return error;
+        }
+        if (!named && params.count() != 2 && params.count() != 3) {
+            return compiler.error(CommandError.TORPEDO_USAGE);
+        }
+
+        int arg = named ? 2 : 1;
+        FiringMode firingMode = firingMode(params, arg);
+        if (firingMode == null) {
+            return compiler.error(CommandError.UNKNOWN_FIRING_MODE,
+                    params.token(arg).toUpperCase());
+        }
+        int count = 1;
+        if (params.count() > arg + 1) {
+            error = compiler.parseCount(params, arg + 1);
+            if (error != CommandError.NONE) {
+                return error;
+            }
+            count = params.intValue();
+        }
+        compiler.program.addTorpedo(nameOffset, nameLength, firingMode, count);
+        return CommandError.NONE;
+    }
+
+    /**
+     * Compile the REPEAT command, which opens a block.
+     */
+    private static CommandError compileRepeat(ScriptCompiler compiler, CommandTokenizer params) {
+        CommandError error;
+        if (params.count() != 2 && params.count() != 3) {
+            error = compiler.error(CommandError.REPEAT_USAGE);
+        } else if (params.count() == 3 && !params.equalsIgnoreCase(2, SUMMARY)) {
+            error = compiler.error(CommandError.UNKNOWN_REPEAT_MODE,
+                    params.token(2).toUpperCase());
+        } else {
+            error = compiler.parseCount(params, 1);
+        }
+
+        // an invalid block is still opened (and never executed), so that its END is not unmatched
+        if (error != CommandError.NONE) {
+            compiler.program.addError(compiler.errorMessage, Program.NO_SHIP, 0);
+        }
+        compiler.blocks.push(new int[] {compiler.program.position(), compiler.program.size()});
+        if (error == CommandError.NONE) {
+            compiler.program.addRepeat(params.intValue(), params.count() == 3);
+        } else {
+            compiler.program.addRepeat(0, false);
+        }
+        return CommandError.NONE;
+    }
+
+    /**
+     * Compile the END command, which closes a block.
+     */
+    private static CommandError compileEnd(ScriptCompiler compiler, CommandTokenizer params) {
+        if (compiler.blocks.isEmpty()) {
+            return compiler.error(CommandError.END_WITHOUT_REPEAT);
+        }
+        compiler.program.endRepeat(compiler.blocks.pop()[0]);
+        return CommandError.NONE;
+    }
+
+    /**
+     * Compile the EXIT command.
+     */
+    private static CommandError compileExit(ScriptCompiler compiler, CommandTokenizer params) {
+        compiler.program.addExit();
+        compiler.exit = true;
+        return CommandError.NONE;
+    }
+
+    /**
+     * Compile the SUBMIT command, which starts a background job.
+     */
+    private static CommandError compileSubmit(ScriptCompiler compiler, CommandTokenizer params) {
+        if (params.count() == 3 && params.equalsIgnoreCase(1, SCRIPT)) {
+            int pathOffset = compiler.program.addName(params.buffer(), params.start(2),
+                    params.end(2));
+            compiler.program.addSubmitScript(pathOffset, params.end(2) - params.start(2));
+            return CommandError.NONE;
+        }
+        if (params.count() != 8 || !params.equalsIgnoreCase(1, FIRE)) {
+            return compiler.error(CommandError.SUBMIT_USAGE);
+        }
+
+        CommandError error = compiler.parseCount(params, 2);
+        if (error != CommandError.NONE) {
+            return error;
+        }
+        int runs = params.intValue();
+        if (!params.tryParseInt(3)) {
+            return compiler.invalidNumber(params);
+        }
+        int primaryCount = params.intValue();
+        if (!params.tryParseDouble(4)) {
+            return compiler.invalidNumber(params);
+        }
+        double primaryFailRate = params.doubleValue();
+        if (!params.tryParseInt(5)) {
+            return compiler.invalidNumber(params);
+        }
+        int secondaryCount = params.intValue();
+        if (!params.tryParseDouble(6)) {
+            return compiler.invalidNumber(params);
+        }
+        double secondaryFailRate = params.doubleValue();
+        FiringMode firingMode = firingMode(params, 7);
+        if (firingMode == null) {
+            return compiler.error(CommandError.UNKNOWN_FIRING_MODE, params.token(7).toUpperCase());
+        }
+        compiler.program.addSubmitFire(runs, primaryCount, primaryFailRate, secondaryCount,
+                secondaryFailRate, firingMode);
+        return CommandError.NONE;
+    }
+
+    /**
+     * Compile the POLL command.
+     */
+    private static CommandError compilePoll(ScriptCompiler compiler, CommandTokenizer params) {
+        if (params.count() == 1) {
+            compiler.program.addPoll(Program.ALL_JOBS);
+            return CommandError.NONE;
+        }
+        if (params.count() != 2) {
+            return compiler.error(CommandError.POLL_USAGE);
+        }
+        CommandError error = compiler.parseCount(params, 1);
+        if (error != CommandError.NONE) {
+            return error;
+        }
+        compiler.program.addPoll(params.intValue());
+        return CommandError.NONE;
+    }
+
+    /**
+     * Compile the CANCEL command.
+     */
+    private static CommandError compileCancel(ScriptCompiler compiler, CommandTokenizer params) {
+        if (params.count() != 2) {
+            return compiler.error(CommandError.CANCEL_USAGE);
+        }
+        CommandError error = compiler.parseCount(params, 1);
+        if (error != CommandError.NONE) {
+            return error;
+        }
+        compiler.program.addCancel(params.intValue());
+        return CommandError.NONE;
+    }
+
+    /**
+     * @return the firing mode named by a parameter, or null if it is not a firing mode
+     */
+    private static FiringMode firingMode(CommandTokenizer params, int index) {
+        for (int i = 0; i < firingModeNames.length; i++) {
+            if (params.equalsIgnoreCase(index, firingModeNames[i])) {
+                return firingModes[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parse a non-negative count; if it is valid, its value is returned by
+     * {@link CommandTokenizer#intValue()}.
+     */
+    private CommandError parseCount(CommandTokenizer params, int index) {
+        if (!params.tryParseInt(index)) {
+            return invalidNumber(params);
+        }
+        if (params.intValue() < 0) {
+            return error(CommandError.INVALID_COUNT, Integer.toString(params.intValue()));
+        }
+        return CommandError.NONE;
+    }
+
+    private CommandError invalidNumber(CommandTokenizer params) {
+        return error(CommandError.INVALID_NUMBER, params.invalidNumberMessage());
+    }
+
+    private static interface Handler {
+        CommandError compile(ScriptCompiler compiler, CommandTokenizer params);
+    }
+}
@@ -0,0 +1,208 @@
+package hu.bme.mit.spaceship;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Exchanges commands and results with a driver process through a memory-mapped file.
+ *
+ * The file holds a header and two {@link MappedRing}s: the driver writes each command line
+ * (without line terminator) as a record of the command ring, and the simulator writes the results
+ * to the result ring as records of arbitrary chunks of the output, exactly as it would write them
+ * to a stream. Either side ends its stream with an end record.
+ *
+ * The simulator creates the file; the header is completed last, so the driver may open the file
+ * as soon as it exists.
+ */
+final class SharedMemoryChannel implements Closeable {
+
+    static final int DEFAULT_CAPACITY = 1 << 20;
+
+    // "SHIP"
+    private static final int MAGIC = 0x53484950;
+
+    // byte offsets of the header fields
+    private static final int MAGIC_OFFSET = 0;
+    private static final int CAPACITY_OFFSET = 4;
+    private static final int HEADER_SIZE = 128;
+
+    private static final VarHandle INTS =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    private final FileChannel file;
+    private final MappedRing commands;
+    private final MappedRing results;
+
+    private SharedMemoryChannel(FileChannel file, MappedByteBuffer mapped, int capacity) {
+        this.file = file;
+        this.commands = new MappedRing(region(mapped, 0, capacity), capacity);
+        this.results = new MappedRing(region(mapped, 1, capacity), capacity);
+    }
+
+    /**
+     * Create the file of a channel, replacing an existing file.
+     *
+     * @param capacity Size of the data of each ring in bytes, a power of two
+     */
+    static SharedMemoryChannel create(Path path, int capacity) throws IOException {
+        if (capacity < 64 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer mapped = file.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + 2L * MappedRing.size(capacity));
+            mapped.putInt(CAPACITY_OFFSET, capacity);
+            SharedMemoryChannel channel = new SharedMemoryChannel(file, mapped, capacity);
+            INTS.setRelease(mapped, MAGIC_OFFSET, MAGIC);
+            return channel;
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Open the file of a channel created by another process, waiting for it to be created.
+     *
+     * @param wait How to wait for the file
+     * @param timeoutNanos Maximum time to wait
+     * @throws IOException if the file is not created in time
+     */
+    static SharedMemoryChannel open(Path path, WaitStrategy wait, long timeoutNanos)
+            throws IOException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        for (long attempt = 0; System.nanoTime() - deadline < 0; attempt++) {
+            if (Files.exists(path) && Files.size(path) >= HEADER_SIZE) {
+                FileChannel file = FileChannel.open(path, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+                try {
+                    MappedByteBuffer mapped =
+                            file.map(FileChannel.MapMode.READ_WRITE, 0, file.size());
+                    if ((int) INTS.getAcquire(mapped, MAGIC_OFFSET) == MAGIC) {
+                        return new SharedMemoryChannel(file, mapped,
+                                mapped.getInt(CAPACITY_OFFSET));
+                    }
+                } catch (IOException | RuntimeException e) {
+                    file.close();
+                    throw e;
+                }
+                file.close();
+            }
+            wait.idle(attempt);
+        }
+        throw new IOException("Timed out waiting for " + path);
+    }
+
+    /**
+     * @return the ring the driver writes commands to
+     */
+    MappedRing commands() {
+        return commands;
+    }
+
+    /**
+     * @return the ring the simulator writes results to
+     */
+    MappedRing results() {
+        return results;
+    }
+
+    /**
+     * Execute the commands of the driver until an EXIT command or the end of the commands.
+     *
+     * The results are published whenever the simulator runs out of commands, so a driver sending
+     * one command at a time gets its result right away, while pipelined commands are answered in
+     * batches.
+     *
+     * @param ctx Context of the session; its output is replaced by the result ring
+     * @param interpreter Interpreter of the commands
+     * @param wait How to wait for commands
+     * @return the number of commands handled
+     */
+    long serve(Context ctx, Interpreter interpreter, WaitStrategy wait) {
+        RingOutputStream output = new RingOutputStream(results, wait);
+        ctx.out = new ResponseWriter(output, results.maxRecordLength());
+        CommandResult result = CommandResult.CONTINUE;
+        while (result == CommandResult.CONTINUE) {
+            for (long attempt = 0; !commands.poll(); attempt++) {
+                if (attempt == 0) {
+                    ctx.out.flush();
+                }
+                wait.idle(attempt);
+            }
+            if (commands.isEnd()) {
+                commands.release();
+                interpreter.finish(ctx);
+                break;
+            }
+            result = interpreter.handle(ctx, commands.buffer(), commands.start(), commands.end());
+            commands.release();
+        }
+        ctx.out.flush();
+        output.close();
+        return ctx.commands;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private static ByteBuffer region(MappedByteBuffer mapped, int index, int capacity) {
+        int offset = HEADER_SIZE + index * MappedRing.size(capacity);
+        ByteBuffer region = mapped.duplicate();
+        region.position(offset).limit(offset + MappedRing.size(capacity));
+        return region.slice();
+    }
+
+    /**
+     * Stream writing chunks of data as records of a ring, waiting for room if the ring is full.
+     */
+    private static final class RingOutputStream extends OutputStream {
+
+        private final MappedRing ring;
+        private final WaitStrategy wait;
+
+        RingOutputStream(MappedRing ring, WaitStrategy wait) {
+            this.ring = ring;
+            this.wait = wait;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            while (length > 0) {
+                int chunk = Math.min(length, ring.maxRecordLength());
+                for (long attempt = 0; !ring.offer(bytes, offset, chunk); attempt++) {
+                    wait.idle(attempt);
+                }
+                offset += chunk;
+                length -= chunk;
+            }
+        }
+
+        @Override
+        public void close() {
+            for (long attempt = 0; !ring.offerEnd(); attempt++) {
+                wait.idle(attempt);
+            }
+        }
+    }
+}
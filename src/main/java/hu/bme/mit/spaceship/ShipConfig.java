@@ -0,0 +1,71 @@
+package hu.bme.mit.spaceship;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable, interned configuration of a GT4500: the configurations of its two torpedo stores.
+ */
+public final class ShipConfig {
+
+    private static final int MAX_INTERNED = 4096;
+    private static final Map<ShipConfig, ShipConfig> interned = new ConcurrentHashMap<>();
+
+    private final StoreConfig primary;
+    private final StoreConfig secondary;
+
+    private ShipConfig(StoreConfig primary, StoreConfig secondary) {
+        this.primary = primary;
+        this.secondary = secondary;
+    }
+
+    /**
+     * @return the interned configuration of the given stores
+     */
+    public static ShipConfig of(StoreConfig primary, StoreConfig secondary) {
+        return StoreConfig.intern(new ShipConfig(primary, secondary), interned, MAX_INTERNED);
+    }
+
+    /**
+     * @return the interned configuration of the given values
+     */
+    public static ShipConfig of(int primaryCount, double primaryFailRate, int secondaryCount,
+            double secondaryFailRate) {
+        return of(StoreConfig.of(primaryCount, primaryFailRate),
+                StoreConfig.of(secondaryCount, secondaryFailRate));
+    }
+
+    /**
+     * @return the configuration of the ships created without parameters
+     */
+    public static ShipConfig defaults() {
+        return Configuration.current().defaultShip();
+    }
+
+    public StoreConfig getPrimary() {
+        return primary;
+    }
+
+    public StoreConfig getSecondary() {
+        return secondary;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof ShipConfig)) {
+            return false;
+        }
+        ShipConfig other = (ShipConfig) obj;
+        return primary.equals(other.primary) && secondary.equals(other.secondary);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * primary.hashCode() + secondary.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return primary + "," + secondary;
+    }
+}
@@ -0,0 +1,91 @@
+package hu.bme.mit.spaceship;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Hash table of named ships.
+ *
+ * Names are looked up directly from slices of the input buffer, so addressing a ship by name does
+ * not allocate; a copy of the name is only made when a new ship is registered. Names are compared
+ * byte by byte, ie. they are case sensitive.
+ */
+final class ShipRegistry {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Entry[] table = new Entry[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Look up a ship by name.
+     *
+     * @param buffer Buffer holding the name
+     * @param from Index of the first byte of the name
+     * @param to Index after the last byte of the name
+     * @return the ship registered with the name, or null if there is none
+     */
+    SpaceShip get(ByteBuffer buffer, int from, int to) {
+        int hash = ByteSlices.hash(buffer, from, to);
+        for (Entry e = table[hash & (table.length - 1)]; e != null; e = e.next) {
+            if (e.hash == hash && ByteSlices.matches(e.name, buffer, from, to)) {
+                return e.ship;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Register a ship with a name, replacing the ship previously registered with the same name.
+     */
+    void put(ByteBuffer buffer, int from, int to, SpaceShip ship) {
+        int hash = ByteSlices.hash(buffer, from, to);
+        int index = hash & (table.length - 1);
+        for (Entry e = table[index]; e != null; e = e.next) {
+            if (e.hash == hash && ByteSlices.matches(e.name, buffer, from, to)) {
+                e.ship = ship;
+                return;
+            }
+        }
+
+        table[index] = new Entry(ByteSlices.copy(buffer, from, to), hash, ship, table[index]);
+        if (++size > table.length / 4 * 3) {
+            resize();
+        }
+    }
+
+    /**
+     * @return the number of registered ships
+     */
+    int size() {
+        return size;
+    }
+
+    private void resize() {
+        Entry[] old = table;
+        table = new Entry[old.length * 2];
+        for (Entry head : old) {
+            Entry e = head;
+            while (e != null) {
+                Entry next = e.next;
+                int index = e.hash & (table.length - 1);
+                e.next = table[index];
+                table[index] = e;
+                e = next;
+            }
+        }
+    }
+
+    private static final class Entry {
+        final byte[] name;
+        final int hash;
+        SpaceShip ship;
+        Entry next;
+
+        Entry(byte[] name, int hash, SpaceShip ship, Entry next) {
+            this.name = name;
+            this.hash = hash;
+            this.ship = ship;
+            this.next = next;
+        }
+    }
+}
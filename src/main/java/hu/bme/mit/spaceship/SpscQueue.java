@@ -0,0 +1,93 @@
+package hu.bme.mit.spaceship;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Bounded single-producer/single-consumer queue of objects.
+ *
+ * Like the {@link MappedRing}, the two sides only communicate through two counters published with
+ * release/acquire semantics, and each side caches the counter of the other side, so the shared
+ * counters are only read when the queue seems to be full or empty. Neither side ever blocks or
+ * locks; waiting for room or for an element is up to the caller.
+ *
+ * @param <E> Type of the elements
+ */
+final class SpscQueue<E> {
+
+    private static final VarHandle HEAD;
+    private static final VarHandle TAIL;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(SpscQueue.class, "head", long.class);
+            TAIL = lookup.findVarHandle(SpscQueue.class, "tail", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Object[] elements;
+    private final int mask;
+
+    // number of elements taken, written by the consumer
+    private volatile long head;
+    // the producer's view of the head
+    private long cachedHead;
+
+    // number of elements added, written by the producer
+    private volatile long tail;
+    // the consumer's view of the tail
+    private long cachedTail;
+
+    /**
+     * @param capacity Maximum number of elements in the queue, rounded up to a power of two
+     */
+    SpscQueue(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.elements = new Object[capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) * 2];
+        this.mask = elements.length - 1;
+    }
+
+    /**
+     * Add an element; only called by the producer.
+     *
+     * @return false if the queue is full
+     */
+    boolean offer(E element) {
+        long t = (long) TAIL.getOpaque(this);
+        if (t - cachedHead >= elements.length) {
+            cachedHead = (long) HEAD.getAcquire(this);
+            if (t - cachedHead >= elements.length) {
+                return false;
+            }
+        }
+        elements[(int) t & mask] = element;
+        TAIL.setRelease(this, t + 1);
+        return true;
+    }
+
+    /**
+     * Take the oldest element; only called by the consumer.
+     *
+     * @return the element, or null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    E poll() {
+        long h = (long) HEAD.getOpaque(this);
+        if (h >= cachedTail) {
+            cachedTail = (long) TAIL.getAcquire(this);
+            if (h >= cachedTail) {
+                return null;
+            }
+        }
+        int index = (int) h & mask;
+        E element = (E) elements[index];
+        elements[index] = null;
+        HEAD.setRelease(this, h + 1);
+        return element;
+    }
+}
@@ -0,0 +1,80 @@
+package hu.bme.mit.spaceship;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable configuration of a torpedo store: its initial number of torpedoes and its rate of
+ * failing to fire.
+ *
+ * Configurations are interned, so the stores (and ships) of the same configuration share a single
+ * instance, which is resolved once (eg. when a command is compiled) rather than each time a store
+ * is created.
+ */
+public final class StoreConfig {
+
+    // interned configurations; beyond the limit configurations are still created, just not shared
+    private static final int MAX_INTERNED = 4096;
+    private static final Map<StoreConfig, StoreConfig> interned = new ConcurrentHashMap<>();
+
+    private final int torpedoCount;
+    private final double failureRate;
+
+    private StoreConfig(int torpedoCount, double failureRate) {
+        this.torpedoCount = torpedoCount;
+        this.failureRate = failureRate;
+    }
+
+    /**
+     * @return the interned configuration of the given values
+     */
+    public static StoreConfig of(int torpedoCount, double failureRate) {
+        return intern(new StoreConfig(torpedoCount, failureRate), interned, MAX_INTERNED);
+    }
+
+    /**
+     * @return the shared instance equal to a configuration, adding it if there is room
+     */
+    static <T> T intern(T config, Map<T, T> interned, int maxInterned) {
+        T shared = interned.get(config);
+        if (shared != null) {
+            return shared;
+        }
+        if (interned.size() >= maxInterned) {
+            return config;
+        }
+        shared = interned.putIfAbsent(config, config);
+        return shared != null ? shared : config;
+    }
+
+    public int getTorpedoCount() {
+        return torpedoCount;
+    }
+
+    /**
+     * @return the rate of failing to fire torpedoes [0.0, 1.0]
+     */
+    public double getFailureRate() {
+        return failureRate;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof StoreConfig)) {
+            return false;
+        }
+        StoreConfig other = (StoreConfig) obj;
+        return torpedoCount == other.torpedoCount
+                && Double.compare(failureRate, other.failureRate) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * torpedoCount + Double.hashCode(failureRate);
+    }
+
+    @Override
+    public String toString() {
+        return torpedoCount + "," + failureRate;
+    }
+}
@@ -0,0 +1,133 @@
+package hu.bme.mit.spaceship;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Line reader for streams (eg. standard input or pipes).
+ *
+ * Reads large chunks into a reusable buffer which only grows if a single line does not fit.
+ */
+final class StreamLineReader implements LineReader {
+
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final Flushable beforeRead;
+
+    private byte[] bytes;
+    private ByteBuffer buffer;
+
+    // next unread byte and end of the valid data in the buffer
+    private int position;
+    private int limit;
+
+    private int start;
+    private int end;
+
+    private boolean eof;
+    private boolean skipLineFeed;
+
+    StreamLineReader(InputStream in, Flushable beforeRead, int bufferSize) {
+        this.in = in;
+        this.beforeRead = beforeRead;
+        this.bytes = new byte[bufferSize];
+        this.buffer = ByteBuffer.wrap(bytes);
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        int i = position;
+        while (true) {
+            if (skipLineFeed) {
+                // the previous line was terminated by \r, it may be followed by \n
+                if (position < limit) {
+                    if (bytes[position] == '\n') {
+                        position++;
+                    }
+                    skipLineFeed = false;
+                    i = position;
+                } else if (!eof) {
+                    fill();
+                    continue;
+                } else {
+                    skipLineFeed = false;
+                }
+            }
+
+            for (; i < limit; i++) {
+                byte b = bytes[i];
+                if (b == '\n' || b == '\r') {
+                    start = position;
+                    end = i;
+                    position = i + 1;
+                    skipLineFeed = b == '\r';
+                    return true;
+                }
+            }
+
+            if (eof) {
+                if (position < limit) {
+                    // last line without a terminator
+                    start = position;
+                    end = limit;
+                    position = limit;
+                    return true;
+                }
+                return false;
+            }
+
+            int scanned = i - position;
+            fill();
+            i = position + scanned;
+        }
+    }
+
+    @Override
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    @Override
+    public int start() {
+        return start;
+    }
+
+    @Override
+    public int end() {
+        return end;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Move the unread bytes to the beginning of the buffer and read more.
+     */
+    private void fill() throws IOException {
+        if (position > 0) {
+            System.arraycopy(bytes, position, bytes, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        if (limit == bytes.length) {
+            // a single line fills the whole buffer
+            byte[] grown = new byte[bytes.length * 2];
+            System.arraycopy(bytes, 0, grown, 0, limit);
+            bytes = grown;
+            buffer = ByteBuffer.wrap(bytes);
+        }
+
+        beforeRead.flush();
+        int n = in.read(bytes, limit, bytes.length - limit);
+        if (n < 0) {
+            eof = true;
+        } else {
+            limit += n;
+        }
+    }
+}
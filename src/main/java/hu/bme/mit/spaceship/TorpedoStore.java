@@ -1,53 +1,110 @@
 package hu.bme.mit.spaceship;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.Random;
 
 /**
  * Class storing and managing the torpedoes of a ship
  *
+ * A store may be fired by multiple threads at once: the number of torpedoes is updated with
+ * compare-and-set, without locking. A store running short of torpedoes because of the other
+ * threads reports a failure rather than throwing. A store without a random source of its own
+ * draws from the per-thread source of the firing thread ({@link RandomSource#current()}). A source
+ * passed in is used by every thread firing the store, so it must be thread-safe if the store is
+ * shared, which {@link RandomSource}s are not. A {@link GT4500} splits its source into one for
+ * each of its stores, so its two stores may be fired by different threads.
+ *
  * (Deliberately contains bugs.)
  */
 public class TorpedoStore {
 
-    private Random generator = new Random();
+    private static final VarHandle TORPEDO_COUNT;
+
+    static {
+        try {
+            TORPEDO_COUNT = MethodHandles.lookup()
+                    .findVarHandle(TorpedoStore.class, "torpedoCount", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // source of the failures, or null to use the shared source of the firing thread
+    private RandomSource generator;
 
     // rate of failing to fire torpedos [0.0, 1.0]
     private double FAILURE_RATE = 0.0; // NOSONAR
 
-    private int torpedoCount = 0;
+    private volatile int torpedoCount = 0;
 
+    /**
+     * Create a store with the default failure rate of the {@link Configuration}.
+     */
     public TorpedoStore(int numberOfTorpedos) {
-        this.torpedoCount = numberOfTorpedos;
-
-        // update failure rate if it was specified in an environment variable
-        String failureEnv = System.getenv("IVT_RATE");
-        if (failureEnv != null) {
-            try {
-                FAILURE_RATE = Double.parseDouble(failureEnv);
-            } catch (NumberFormatException nfe) {
-                FAILURE_RATE = 0.0;
-            }
-        }
+        this(numberOfTorpedos, Configuration.current().failureRate());
     }
 
     public TorpedoStore(int numberOfTorpedos, double failureRate) {
-        this(numberOfTorpedos);
+        this.torpedoCount = numberOfTorpedos;
         this.FAILURE_RATE = failureRate;
     }
 
+    /**
+     * @param generator random generator simulating failures (eg. a seeded one for reproducible
+     *     runs)
+     */
+    public TorpedoStore(int numberOfTorpedos, double failureRate, Random generator) {
+        this(numberOfTorpedos, failureRate, RandomSource.of(generator));
+    }
+
+    /**
+     * @param generator source of the random numbers simulating failures (eg. a seeded one for
+     *     reproducible runs)
+     */
+    public TorpedoStore(int numberOfTorpedos, double failureRate, RandomSource generator) {
+        this(numberOfTorpedos, failureRate);
+        this.generator = generator;
+    }
+
+    /**
+     * @param config shared configuration of the store
+     * @param generator source of the random numbers simulating failures, or null to use the
+     *     shared source of the firing thread
+     */
+    public TorpedoStore(StoreConfig config, RandomSource generator) {
+        this(config.getTorpedoCount(), config.getFailureRate(), generator);
+    }
+
+    /**
+     * Try to fire torpedoes.
+     *
+     * @return whether the torpedoes were fired; false if the launcher failed, or if the store
+     *     holds fewer torpedoes (eg. because other threads have fired them)
+     * @throws IllegalArgumentException if the number of torpedoes is not positive
+     */
     public boolean fire(int numberOfTorpedos) {
-        if (numberOfTorpedos < 1 || numberOfTorpedos > this.torpedoCount) {
+        if (numberOfTorpedos < 1) {
             throw new IllegalArgumentException("numberOfTorpedos");
         }
+        if (numberOfTorpedos > this.torpedoCount) {
+            return false;
+        }
 
         boolean success = false;
 
         // simulate random overheating of the launcher bay which prevents firing
-        double r = generator.nextDouble();
+        double r = (generator != null ? generator : RandomSource.current()).nextDouble();
 
         if (r >= FAILURE_RATE) {
-            // successful firing
-            this.torpedoCount -= numberOfTorpedos;
+            // successful firing, unless other threads have taken the torpedoes since the check
+            int count;
+            do {
+                count = this.torpedoCount;
+                if (numberOfTorpedos > count) {
+                    return false;
+                }
+            } while (!TORPEDO_COUNT.weakCompareAndSet(this, count, count - numberOfTorpedos));
             success = true;
         } else {
             // simulated failure
@@ -57,6 +114,54 @@ public class TorpedoStore {
         return success;
     }
 
+    /**
+     * Fire a salvo in which each torpedo fails independently.
+     *
+     * The number of torpedoes launched is sampled at once (see {@link Binomial}), so a salvo of
+     * any size takes a few random numbers. Only the torpedoes launched leave the store.
+     *
+     * @return the number of torpedoes launched; if the store holds fewer torpedoes (eg. because
+     *     other threads have fired them), the salvo is made of the ones left
+     * @throws IllegalArgumentException if the number of torpedoes is not positive
+     */
+    public int fireSalvo(int numberOfTorpedos) {
+        if (numberOfTorpedos < 1) {
+            throw new IllegalArgumentException("numberOfTorpedos");
+        }
+        int count = Math.min(numberOfTorpedos, this.torpedoCount);
+        return count > 0 ? launch(count) : 0;
+    }
+
+    /**
+     * Fire all the torpedoes left in a salvo, like {@link #fireSalvo(int)}.
+     *
+     * Unlike checking the number of torpedoes and firing them, this never fails when other
+     * threads fire the store in the meantime.
+     *
+     * @return the number of torpedoes launched; 0 if the store is empty
+     */
+    public int fireSalvo() {
+        int count = this.torpedoCount;
+        return count > 0 ? launch(count) : 0;
+    }
+
+    /**
+     * Sample the torpedoes of a salvo launching and take them from the store.
+     */
+    private int launch(int numberOfTorpedos) {
+        RandomSource source = generator != null ? generator : RandomSource.current();
+        int launched = Binomial.sample(numberOfTorpedos, 1 - FAILURE_RATE, source);
+
+        // other threads may have taken some of the torpedoes since the check
+        int count;
+        do {
+            count = this.torpedoCount;
+            launched = Math.min(launched, count);
+        } while (launched > 0
+                && !TORPEDO_COUNT.weakCompareAndSet(this, count, count - launched));
+        return launched;
+    }
+
     public boolean isEmpty() {
         return this.torpedoCount <= 0;
     }
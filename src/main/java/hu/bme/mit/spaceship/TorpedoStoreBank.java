@@ -0,0 +1,137 @@
+package hu.bme.mit.spaceship;
+
+import java.util.Arrays;
+
+/**
+ * The torpedo stores of a whole fleet, kept in primitive arrays.
+ *
+ * Store <code>i</code> is the <code>i</code>th element of an array of torpedo counts and an array
+ * of failure rates, so a store takes 12 bytes instead of a {@link TorpedoStore} object and the
+ * reference to it, and operations on many stores scan the arrays sequentially. Firing a store of
+ * the bank gives the same results as firing a {@link TorpedoStore} of the same configuration with
+ * the same random source.
+ *
+ * Unlike a single {@link TorpedoStore}, a bank is not safe for concurrent use: it is meant to be
+ * owned by one thread (eg. one bank per thread for a fleet split between threads).
+ */
+public final class TorpedoStoreBank {
+
+    private final int[] counts;
+    private final double[] failureRates;
+
+    // source of the failures, or null to use the shared source of the firing thread
+    private final RandomSource generator;
+
+    /**
+     * Create a bank of stores of the same configuration.
+     *
+     * @param size Number of stores
+     * @param config Configuration of each store
+     * @param generator Source of the random numbers simulating failures, or null to use the
+     *     shared source of the firing thread
+     */
+    public TorpedoStoreBank(int size, StoreConfig config, RandomSource generator) {
+        if (size < 0) {
+            throw new IllegalArgumentException("size");
+        }
+        this.counts = new int[size];
+        this.failureRates = new double[size];
+        Arrays.fill(counts, config.getTorpedoCount());
+        Arrays.fill(failureRates, config.getFailureRate());
+        this.generator = generator;
+    }
+
+    /**
+     * Create a bank of stores of different configurations.
+     *
+     * @param counts Initial number of torpedoes of each store
+     * @param failureRates Rate of failing to fire of each store
+     * @param generator Source of the random numbers simulating failures, or null to use the
+     *     shared source of the firing thread
+     */
+    public TorpedoStoreBank(int[] counts, double[] failureRates, RandomSource generator) {
+        if (counts.length != failureRates.length) {
+            throw new IllegalArgumentException("failureRates");
+        }
+        this.counts = counts.clone();
+        this.failureRates = failureRates.clone();
+        this.generator = generator;
+    }
+
+    /**
+     * @return the number of stores
+     */
+    public int size() {
+        return counts.length;
+    }
+
+    /**
+     * Try to fire torpedoes from a store, like {@link TorpedoStore#fire(int)}.
+     *
+     * @return whether the torpedoes were fired; false if the launcher failed, or if the store
+     *     holds fewer torpedoes
+     * @throws IllegalArgumentException if the number of torpedoes is not positive
+     */
+    public boolean fire(int index, int numberOfTorpedos) {
+        if (numberOfTorpedos < 1) {
+            throw new IllegalArgumentException("numberOfTorpedos");
+        }
+        if (numberOfTorpedos > counts[index]) {
+            return false;
+        }
+        RandomSource source = generator != null ? generator : RandomSource.current();
+        if (source.nextDouble() >= failureRates[index]) {
+            counts[index] -= numberOfTorpedos;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Fire torpedoes from every store holding enough of them, in the order of the stores.
+     *
+     * The result is the same as firing the stores one by one (in particular, the random numbers
+     * are drawn in the same order), but the arrays are scanned in a single pass. Stores holding
+     * fewer torpedoes are skipped.
+     *
+     * @return the number of stores that have fired successfully
+     * @throws IllegalArgumentException if the number of torpedoes is not positive
+     */
+    public int fireAll(int numberOfTorpedos) {
+        if (numberOfTorpedos < 1) {
+            throw new IllegalArgumentException("numberOfTorpedos");
+        }
+        RandomSource source = generator != null ? generator : RandomSource.current();
+        int[] counts = this.counts;
+        double[] failureRates = this.failureRates;
+        int successes = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] >= numberOfTorpedos && source.nextDouble() >= failureRates[i]) {
+                counts[i] -= numberOfTorpedos;
+                successes++;
+            }
+        }
+        return successes;
+    }
+
+    public boolean isEmpty(int index) {
+        return counts[index] <= 0;
+    }
+
+    public int getTorpedoCount(int index) {
+        return counts[index];
+    }
+
+    /**
+     * @return the number of stores that are not empty
+     */
+    public int countNonEmpty() {
+        int nonEmpty = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                nonEmpty++;
+            }
+        }
+        return nonEmpty;
+    }
+}
@@ -0,0 +1,57 @@
+package hu.bme.mit.spaceship;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a thread waits for the other side of a shared memory ring.
+ *
+ * The strategies trade latency for CPU usage: a spinning thread reacts within nanoseconds but
+ * keeps a core busy, a parked thread frees the core but takes tens of microseconds to wake up.
+ */
+enum WaitStrategy {
+
+    /** Poll continuously. */
+    SPIN {
+        @Override
+        void idle(long attempt) {
+            Thread.onSpinWait();
+        }
+    },
+
+    /** Poll for a while, then give up the processor between polls. */
+    YIELD {
+        @Override
+        void idle(long attempt) {
+            if (attempt < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    },
+
+    /** Poll for a while, then sleep between polls. */
+    PARK {
+        @Override
+        void idle(long attempt) {
+            if (attempt < SPINS) {
+                Thread.onSpinWait();
+            } else if (attempt < SPINS + YIELDS) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+    };
+
+    private static final int SPINS = 1000;
+    private static final int YIELDS = 100;
+    private static final long PARK_NANOS = 50_000;
+
+    /**
+     * Wait a little before polling again.
+     *
+     * @param attempt Number of polls that have found nothing so far
+     */
+    abstract void idle(long attempt);
+}
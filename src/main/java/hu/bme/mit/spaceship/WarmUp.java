@@ -0,0 +1,176 @@
+package hu.bme.mit.spaceship;
+
+import java.io.OutputStream;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+/**
+ * Warms up the JIT compiler before real commands arrive.
+ *
+ * A synthetic script exercising all commands (including invalid ones, blocks and named ships) is
+ * run repeatedly through the same path as real input: interpreters with and without line cache,
+ * the compiled program and a response writer of the output format. Each round runs in throwaway
+ * contexts writing to a discarding stream, so nothing is shared with the real sessions. Rounds
+ * are repeated until their durations are stable and the JIT compiler has stopped compiling, or
+ * until the time limit is reached.
+ */
+final class WarmUp {
+
+    /** Default time limit of the warm-up. */
+    static final long DEFAULT_MAX_NANOS = 5_000_000_000L;
+
+    private static final int LINES = 10_000;
+    private static final int MIN_ROUNDS = 5;
+    // number of consecutive settled rounds needed
+    private static final int SETTLED_ROUNDS = 2;
+    // maximum relative difference of the durations of settled rounds
+    private static final double TOLERANCE = 0.05;
+
+    private WarmUp() {
+    }
+
+    /**
+     * Run the warm-up.
+     *
+     * @param format Output format whose writer is warmed up
+     * @param maxNanos Time limit of the warm-up
+     * @return how the warm-up went
+     */
+    static Result run(OutputFormat format, long maxNanos) {
+        byte[] script = script();
+        ByteBuffer buffer = ByteBuffer.wrap(script);
+        CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+        boolean jitMonitored = jit != null && jit.isCompilationTimeMonitoringSupported();
+
+        long start = System.nanoTime();
+        long previousNanos = 0;
+        long previousJitMillis = -1;
+        int settled = 0;
+        int rounds = 0;
+        long commands;
+        long nanos;
+        do {
+            long roundStart = System.nanoTime();
+            commands = runRound(buffer, script.length, format, rounds);
+            nanos = System.nanoTime() - roundStart;
+            rounds++;
+
+            long jitMillis = jitMonitored ? jit.getTotalCompilationTime() : 0;
+            boolean stable = Math.abs(nanos - previousNanos) <= TOLERANCE * previousNanos
+                    && jitMillis == previousJitMillis;
+            settled = stable ? settled + 1 : 0;
+            previousNanos = nanos;
+            previousJitMillis = jitMillis;
+        } while ((rounds < MIN_ROUNDS || settled < SETTLED_ROUNDS)
+                && System.nanoTime() - start < maxNanos);
+
+        return new Result(rounds, System.nanoTime() - start, settled >= SETTLED_ROUNDS,
+                (double) nanos / commands);
+    }
+
+    /**
+     * Run the script once with cache, once without cache, and once compiled.
+     *
+     * @return the number of commands executed
+     */
+    private static long runRound(ByteBuffer script, int length, OutputFormat format, int round) {
+        long commands = 0;
+        Interpreter[] interpreters = {new Interpreter(), new Interpreter(null)};
+        for (Interpreter interpreter : interpreters) {
+            Context ctx = newContext(format, round);
+            int from = 0;
+            for (int i = 0; i < length; i++) {
+                if (script.get(i) == '\n') {
+                    if (interpreter.handle(ctx, script, from, i) == CommandResult.EXIT) {
+                        break;
+                    }
+                    from = i + 1;
+                }
+            }
+            interpreter.finish(ctx);
+            ctx.out.flush();
+            commands += ctx.commands;
+        }
+
+        Program program = new Program();
+        ScriptCompiler compiler = new ScriptCompiler(program, true);
+        CommandTokenizer tokens = new CommandTokenizer();
+        int from = 0;
+        for (int i = 0; i < length; i++) {
+            if (script.get(i) == '\n') {
+                if (tokens.tokenize(script, from, i)) {
+                    compiler.compile(tokens);
+                }
+                from = i + 1;
+            }
+        }
+        compiler.finish();
+        Context ctx = newContext(format, round);
+        program.execute(ctx);
+        ctx.out.flush();
+        return commands + ctx.commands;
+    }
+
+    private static Context newContext(OutputFormat format, int round) {
+        Context ctx = new Context(format.writer(OutputStream.nullOutputStream()));
+        ctx.seeds = RandomSource.seeded(round);
+        return ctx;
+    }
+
+    /**
+     * @return a script using all the commands, with both repeated and distinct lines
+     */
+    private static byte[] script() {
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < LINES; i++) {
+            if (i % 50 == 0) {
+                script.append("GT4500,").append(10 + i % 7).append(",0.").append(i % 10)
+                        .append(',').append(10 + i % 5).append(",0.").append(i % 9);
+            } else if (i % 50 == 1) {
+                script.append("GT4500,ship").append(i % 8).append(",20,0.3,20,0.3");
+            } else if (i % 10 == 2) {
+                script.append("TORPEDO,ship").append(i % 8).append(",ALL");
+            } else if (i % 10 == 3) {
+                script.append("TORPEDO,SINGLE,").append(1 + i % 4);
+            } else if (i % 100 == 4) {
+                script.append("REPEAT,3,SUMMARY");
+            } else if (i % 100 == 5) {
+                script.append("TORPEDO,BURST");
+            } else if (i % 100 == 6) {
+                script.append("FIRE,").append(i);
+            } else if (i % 100 == 7) {
+                script.append("GT4500,x,1,0,1");
+            } else if (i % 100 == 8) {
+                script.append("END");
+            } else if (i % 1000 == 9) {
+                script.append("HELP");
+            } else if (i % 100 == 10) {
+                script.append("# comment");
+            } else {
+                script.append(i % 2 == 0 ? "TORPEDO,ALL" : "TORPEDO,SINGLE");
+            }
+            script.append('\n');
+        }
+        return script.toString().getBytes();
+    }
+
+    /**
+     * Outcome of the warm-up.
+     */
+    static final class Result {
+        final int rounds;
+        final long nanos;
+        // whether the rounds have settled before the time limit
+        final boolean settled;
+        // time per command in the last round
+        final double nanosPerCommand;
+
+        Result(int rounds, long nanos, boolean settled, double nanosPerCommand) {
+            this.rounds = rounds;
+            this.nanos = nanos;
+            this.settled = settled;
+            this.nanosPerCommand = nanosPerCommand;
+        }
+    }
+}
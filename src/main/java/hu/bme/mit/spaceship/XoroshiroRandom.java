@@ -0,0 +1,71 @@
+package hu.bme.mit.spaceship;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The default {@link RandomSource}: a xoroshiro128++ generator.
+ *
+ * Its whole state is two longs updated with a few shifts and xors, without any synchronization,
+ * so it is both smaller and faster than a {@link java.util.Random}. Seeds are expanded into the
+ * state with SplitMix64, so similar seeds (eg. 1, 2, 3) still give unrelated sequences.
+ */
+final class XoroshiroRandom implements RandomSource {
+
+    // the unseeded sources of the threads
+    static final ThreadLocal<RandomSource> CURRENT = ThreadLocal.withInitial(RandomSource::create);
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    private static final AtomicLong seedUniquifier = new AtomicLong(System.nanoTime());
+
+    private long s0;
+    private long s1;
+
+    XoroshiroRandom(long seed) {
+        long state = seed;
+        s0 = mix(state += GOLDEN_GAMMA);
+        s1 = mix(state + GOLDEN_GAMMA);
+        if ((s0 | s1) == 0) {
+            // the all-zero state would only ever produce zeros
+            s1 = GOLDEN_GAMMA;
+        }
+    }
+
+    /**
+     * @return a seed differing from all seeds returned before
+     */
+    static long uniqueSeed() {
+        return mix(seedUniquifier.addAndGet(GOLDEN_GAMMA) ^ System.nanoTime());
+    }
+
+    @Override
+    public long nextLong() {
+        long x0 = s0;
+        long x1 = s1;
+        long result = Long.rotateLeft(x0 + x1, 17) + x0;
+        x1 ^= x0;
+        s0 = Long.rotateLeft(x0, 49) ^ x1 ^ (x1 << 21);
+        s1 = Long.rotateLeft(x1, 28);
+        return result;
+    }
+
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    @Override
+    public RandomSource split() {
+        return new XoroshiroRandom(nextLong());
+    }
+
+    /**
+     * SplitMix64 finalizer.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
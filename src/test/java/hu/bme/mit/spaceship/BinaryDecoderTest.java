@@ -0,0 +1,81 @@
+package hu.bme.mit.spaceship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class BinaryDecoderTest {
+
+    private static final String SCRIPT = "# named and unnamed ships\n"
+            + "GT4500,10,0,10,0\n"
+            + "GT4500,a-ship-name-longer-than-a-single-frame,1,0,0,0\n"
+            + "TORPEDO,SINGLE,3\n"
+            + "TORPEDO,a-ship-name-longer-than-a-single-frame,ALL,2\n"
+            + "torpedo,all\n"
+            + "EXIT\n"
+            + "TORPEDO,ALL\n";
+
+    private static byte[] encode(String script) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BinaryEncoder encoder = new BinaryEncoder(out)) {
+            BinaryEncoder.convert(
+                    LineReader.of(new ByteArrayInputStream(script.getBytes()), () -> {}), encoder);
+        }
+        return out.toByteArray();
+    }
+
+    private static String decodeAndExecute(byte[] binary, int batchSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Context ctx = new Context(new ResponseWriter(out));
+        BinaryDecoder decoder = new BinaryDecoder(new ByteArrayInputStream(binary), batchSize);
+        Program program = new Program();
+        while (decoder.next(program) && program.execute(ctx) != CommandResult.EXIT) {
+            program.clear();
+        }
+        ctx.out.flush();
+        return out.toString();
+    }
+
+    @Test
+    void next_EncodedScript_SameResultsAsText() throws IOException {
+        // Arrange
+        byte[] binary = encode(SCRIPT);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        CommandLineInterface.run(new ByteArrayInputStream(SCRIPT.getBytes()), expected);
+
+        // Act
+        String result = decodeAndExecute(binary, 3);
+
+        // Assert
+        assertEquals(0, binary.length % BinaryFormat.FRAME_SIZE);
+        assertEquals(expected.toString(), result);
+    }
+
+    @Test
+    void next_TruncatedFrame_Throws() throws IOException {
+        // Arrange
+        byte[] binary = encode(SCRIPT);
+        byte[] truncated = Arrays.copyOf(binary, binary.length - 1);
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> decodeAndExecute(truncated, 1024));
+    }
+
+    @Test
+    void convert_InvalidCommand_RejectedWithLineNumber() {
+        // Arrange
+
+        // Act
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> encode("GT4500,1,0,1,0\n\nTORPEDO,BURST\n"));
+
+        // Assert
+        assertEquals("line 3: Unknown firing mode: 'BURST'", e.getMessage());
+    }
+}
@@ -0,0 +1,104 @@
+package hu.bme.mit.spaceship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class BinomialTest {
+
+    /**
+     * Source counting the random numbers drawn.
+     */
+    private static final class CountingSource implements RandomSource {
+        private final RandomSource source = RandomSource.seeded(1);
+        long draws;
+
+        @Override
+        public double nextDouble() {
+            draws++;
+            return source.nextDouble();
+        }
+
+        @Override
+        public long nextLong() {
+            draws++;
+            return source.nextLong();
+        }
+
+        @Override
+        public RandomSource split() {
+            return source.split();
+        }
+    }
+
+    /**
+     * Check the mean and the variance of many samples against those of the distribution.
+     */
+    private static void assertDistribution(int trials, double probability) {
+        RandomSource random = RandomSource.seeded(trials);
+        int samples = 200_000;
+        double sum = 0;
+        double sumOfSquares = 0;
+        for (int i = 0; i < samples; i++) {
+            int k = Binomial.sample(trials, probability, random);
+            assertTrue(k >= 0 && k <= trials, Integer.toString(k));
+            sum += k;
+            sumOfSquares += (double) k * k;
+        }
+        double mean = sum / samples;
+        double variance = sumOfSquares / samples - mean * mean;
+        double expectedMean = trials * probability;
+        double expectedVariance = expectedMean * (1 - probability);
+        // a generous bound: five standard errors of the mean
+        assertEquals(expectedMean, mean, 5 * Math.sqrt(expectedVariance / samples) + 1e-9);
+        assertEquals(expectedVariance, variance, 0.05 * expectedVariance + 1e-9);
+    }
+
+    @Test
+    void sample_SmallMean_Distribution() {
+        assertDistribution(20, 0.1);
+        assertDistribution(1_000_000, 0.000_005);
+    }
+
+    @Test
+    void sample_LargeMean_Distribution() {
+        assertDistribution(100, 0.4);
+        assertDistribution(5_000, 0.9);
+        assertDistribution(1_000_000, 0.3);
+    }
+
+    @Test
+    void sample_Bounds_NoRandomNumbers() {
+        // Arrange
+        CountingSource random = new CountingSource();
+
+        // Act
+        int none = Binomial.sample(100, 0.0, random);
+        int all = Binomial.sample(100, 1.0, random);
+        int clamped = Binomial.sample(100, 1.5, random);
+        int noTrials = Binomial.sample(0, 0.5, random);
+
+        // Assert
+        assertEquals(0, none);
+        assertEquals(100, all);
+        assertEquals(100, clamped);
+        assertEquals(0, noTrials);
+        assertEquals(0, random.draws);
+    }
+
+    @Test
+    void sample_ManyTrials_FewRandomNumbers() {
+        // Arrange
+        CountingSource random = new CountingSource();
+        int samples = 10_000;
+
+        // Act
+        for (int i = 0; i < samples; i++) {
+            Binomial.sample(1_000_000, 0.3, random);
+        }
+
+        // Assert
+        assertTrue(random.draws < 4 * samples, Long.toString(random.draws));
+    }
+}
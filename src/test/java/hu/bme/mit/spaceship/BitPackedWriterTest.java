@@ -0,0 +1,80 @@
+package hu.bme.mit.spaceship;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class BitPackedWriterTest {
+
+    /**
+     * Write the same random responses to both writers.
+     */
+    private static void writeResponses(ResponseWriter... writers) {
+        Random random = new Random(17);
+        for (int i = 0; i < 3 * BitPackedWriter.MAX_RESULTS; i++) {
+            boolean success = random.nextBoolean();
+            for (ResponseWriter writer : writers) {
+                if (i % 10_000 == 0) {
+                    writer.println("Unknown ship: 'ship-" + i + "'");
+                }
+                writer.result(success);
+            }
+        }
+        for (ResponseWriter writer : writers) {
+            writer.flush();
+        }
+    }
+
+    @Test
+    void expand_Written_SameAsText() throws IOException {
+        // Arrange
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        ByteArrayOutputStream bits = new ByteArrayOutputStream();
+        writeResponses(new ResponseWriter(text), new BitPackedWriter(bits, 1024));
+
+        // Act
+        ByteArrayOutputStream expanded = new ByteArrayOutputStream();
+        BitPackedWriter.expand(new ByteArrayInputStream(bits.toByteArray()),
+                new ResponseWriter(expanded));
+
+        // Assert
+        assertEquals(text.toString(), expanded.toString());
+    }
+
+    @Test
+    void result_Bits_OneBitPerResult() {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResponseWriter writer = new BitPackedWriter(out, 64);
+
+        // Act
+        for (int i = 0; i < 16; i++) {
+            writer.result(i % 3 == 0);
+        }
+        writer.flush();
+
+        // Assert
+        byte[] expected = {BitPackedWriter.HEADER, 'S', 'H', 'R', BitPackedWriter.VERSION,
+                BitPackedWriter.RESULTS, 16, 0b01001001, (byte) 0b10010010};
+        assertArrayEquals(expected, out.toByteArray());
+    }
+
+    @Test
+    void expand_Truncated_Throws() {
+        // Arrange
+        byte[] truncated = {BitPackedWriter.HEADER, 'S', 'H', 'R', BitPackedWriter.VERSION,
+                BitPackedWriter.RESULTS, 16, 0};
+        ResponseWriter out = new ResponseWriter(new ByteArrayOutputStream());
+
+        // Act & Assert
+        assertThrows(IOException.class,
+                () -> BitPackedWriter.expand(new ByteArrayInputStream(truncated), out));
+    }
+}
@@ -0,0 +1,102 @@
+package hu.bme.mit.spaceship;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures the wall-clock time of running a small script in a fresh JVM, from launching the
+ * process to its exit, for each way of launching the command line interface:
+ * <ul>
+ * <li>classes: the JDK running the compiled classes (as <code>exec:java</code> does)</li>
+ * <li>jar: the JDK running the jar of the fast startup profile</li>
+ * <li>runtime+appcds: the trimmed runtime image of the fast startup profile running the jar with
+ * the application class-data-sharing archive</li>
+ * </ul>
+ * Build the fast startup files first with <code>mvn clean package -Pfast-startup</code>;
+ * launches whose files are missing are skipped.
+ *
+ * Not a unit test; run it with
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -DmainClass=hu.bme.mit.spaceship.ColdStartBenchmark
+ * [-Dexec.args="LAUNCHES [SCRIPT]"]</code>
+ */
+public final class ColdStartBenchmark {
+
+    private static final Path FAST_STARTUP = Path.of("target", "fast-startup");
+
+    private ColdStartBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int launches = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        Path script = Path.of(args.length > 1 ? args[1] : "test-data/input-1.txt");
+
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        String classes = Path.of(CommandLineInterface.class.getProtectionDomain()
+                .getCodeSource().getLocation().toURI()).toString();
+        Path jar = FAST_STARTUP.resolve("spaceship.jar");
+        Path runtime = FAST_STARTUP.resolve(Path.of("runtime", "bin", "java"));
+        Path archive = FAST_STARTUP.resolve("spaceship.jsa");
+
+        System.out.printf("%-16s %10s %10s %10s %10s %10s  [ms]%n", "launch", "min", "p50",
+                "p90", "p99", "max");
+        run("classes", List.of(java, "-cp", classes), script, launches);
+        if (Files.exists(jar)) {
+            run("jar", List.of(java, "-cp", jar.toString()), script, launches);
+        }
+        if (Files.exists(runtime) && Files.exists(archive)) {
+            run("runtime+appcds", List.of(runtime.toString(),
+                    "-XX:SharedArchiveFile=" + archive, "-Xshare:auto", "-cp", jar.toString()),
+                    script, launches);
+        } else {
+            System.out.println("Skipped the fast startup launches, package the "
+                    + "fast-startup profile first");
+        }
+    }
+
+    /**
+     * Launch the CLI on the script repeatedly and print the distribution of the launch times.
+     *
+     * @param jvm Command line of the JVM, without the main class
+     */
+    private static void run(String name, List<String> jvm, Path script, int launches)
+            throws Exception {
+        List<String> command = new ArrayList<>(jvm);
+        command.add(CommandLineInterface.class.getName());
+        command.add(script.toString());
+
+        // let the file system cache settle
+        launch(command);
+
+        long[] nanos = new long[launches];
+        for (int i = 0; i < launches; i++) {
+            long start = System.nanoTime();
+            launch(command);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%-16s %10.1f %10.1f %10.1f %10.1f %10.1f%n", name, nanos[0] / 1e6,
+                percentile(nanos, 50) / 1e6, percentile(nanos, 90) / 1e6,
+                percentile(nanos, 99) / 1e6, nanos[nanos.length - 1] / 1e6);
+    }
+
+    private static void launch(List<String> command) throws Exception {
+        Process process = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IllegalStateException(
+                    "Exit code " + exitCode + " of " + String.join(" ", command));
+        }
+    }
+
+    private static long percentile(long[] sorted, double percent) {
+        int index = (int) Math.ceil(percent / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,68 @@
+package hu.bme.mit.spaceship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CommandCacheTest {
+
+    private CommandCache cache;
+
+    @BeforeEach
+    public void init() {
+        this.cache = new CommandCache(2);
+    }
+
+    private static ByteBuffer line(String line) {
+        return ByteBuffer.wrap(line.getBytes());
+    }
+
+    private Program get(String line) {
+        return cache.get(line(line), 0, line.length());
+    }
+
+    private void put(String line, Program program) {
+        cache.put(line(line), 0, line.length(), program);
+    }
+
+    @Test
+    void get_CachedLine_Hit() {
+        // Arrange
+        Program program = new Program();
+        put("TORPEDO,SINGLE", program);
+
+        // Act
+        Program result = cache.get(line("GT4500,1,0,1,0\nTORPEDO,SINGLE\n"), 15, 29);
+
+        // Assert
+        assertSame(program, result);
+        assertEquals(1, cache.hits());
+        assertEquals(0, cache.misses());
+    }
+
+    @Test
+    void put_Full_LeastRecentlyUsedEvicted() {
+        // Arrange
+        Program single = new Program();
+        Program all = new Program();
+        put("TORPEDO,SINGLE", single);
+        put("TORPEDO,ALL", all);
+        get("TORPEDO,SINGLE");
+
+        // Act
+        put("HELP", new Program());
+
+        // Assert
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictions());
+        assertSame(single, get("TORPEDO,SINGLE"));
+        assertNull(get("TORPEDO,ALL"));
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+}
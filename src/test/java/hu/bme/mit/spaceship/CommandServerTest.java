@@ -0,0 +1,207 @@
+package hu.bme.mit.spaceship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CommandServerTest {
+
+    private CommandServer server;
+
+    @BeforeEach
+    public void init() throws IOException {
+        server = new CommandServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2,
+                CommandCache.DEFAULT_CAPACITY, null);
+        server.start();
+    }
+
+    @AfterEach
+    public void close() throws IOException {
+        server.close();
+    }
+
+    /**
+     * Send a whole script without waiting for the results, then read all the results.
+     */
+    private String session(byte[] script) throws IOException {
+        InetSocketAddress address = server.address();
+        try (Socket socket = new Socket(address.getAddress(), address.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write(script);
+            out.flush();
+            socket.shutdownOutput();
+            return new String(socket.getInputStream().readAllBytes());
+        }
+    }
+
+    private static String expected(byte[] script) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CommandLineInterface.run(new ByteArrayInputStream(script), out);
+        return out.toString();
+    }
+
+    @Test
+    void session_PipelinedScript_SameAsCommandLine() throws IOException {
+        // Arrange
+        byte[] script = Files.readAllBytes(Path.of("test-data", "input-3.txt"));
+
+        // Act
+        String result = session(script);
+
+        // Assert
+        assertEquals(expected(script), result);
+    }
+
+    @Test
+    void session_ManyConcurrentClients_ResultsInOrder() throws Exception {
+        // Arrange
+        StringBuilder script = new StringBuilder("GT4500,100000,0,0,0\r\n");
+        for (int i = 0; i < 20000; i++) {
+            script.append(i % 100 == 0 ? "TORPEDO,BURST\r\n" : "TORPEDO,SINGLE\r\n");
+        }
+        script.append("EXIT\r\nTORPEDO,SINGLE\r\n");
+        byte[] bytes = script.toString().getBytes();
+        ExecutorService clients = Executors.newFixedThreadPool(16);
+
+        // Act
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            results.add(clients.submit(() -> session(bytes)));
+        }
+
+        // Assert
+        String expected = expected(bytes);
+        for (Future<String> result : results) {
+            assertEquals(expected, result.get());
+        }
+        clients.shutdown();
+    }
+
+    @Test
+    void session_LastLineWithoutTerminator_Executed() throws IOException {
+        // Arrange
+        byte[] script = "GT4500,1,0,1,0\nTORPEDO,ALL".getBytes();
+
+        // Act
+        String result = session(script);
+
+        // Assert
+        assertEquals(expected(script), result);
+    }
+
+    @Test
+    void session_CarriageReturns_SameAsCommandLine() throws IOException {
+        // Arrange
+        byte[] script = "GT4500,1,0,1,0\rTORPEDO,SINGLE\r\rTORPEDO,ALL\r\nHELP\n\r".getBytes();
+
+        // Act
+        String result = session(script);
+
+        // Assert
+        assertEquals(expected(script), result);
+    }
+
+    @Test
+    void session_SubmitScript_Rejected() throws IOException {
+        // Arrange
+        byte[] script = "SUBMIT,SCRIPT,pom.xml\nPOLL\n".getBytes();
+
+        // Act
+        String result = session(script);
+
+        // Assert
+        assertEquals(CommandError.SCRIPT_JOBS_DISABLED.message() + System.lineSeparator()
+                + "No jobs" + System.lineSeparator(), result);
+    }
+
+    @Test
+    void session_HugeCounts_Rejected() throws IOException {
+        // Arrange
+        byte[] script = ("GT4500,1,0,1,0\nTORPEDO,SINGLE,2000000000\nREPEAT,1000000000\n"
+                + "TORPEDO,ALL\nEND\nREPEAT,1000,SUMMARY\nREPEAT,1000\nTORPEDO,SINGLE\nEND\nEND\n"
+                + "TORPEDO,ALL\n").getBytes();
+
+        // Act
+        String[] lines = session(script).split(System.lineSeparator());
+
+        // Assert
+        String limit = CommandError.COMMAND_LIMIT.message();
+        assertEquals(List.of("SUCCESS", limit, limit), List.of(lines).subList(0, 3));
+        assertTrue(lines[3].startsWith("SUMMARY: "), lines[3]);
+        assertEquals(List.of(limit, "FAIL"), List.of(lines).subList(4, lines.length));
+    }
+
+    @Test
+    void session_ClientNotReading_OtherClientServed() throws IOException {
+        // Arrange
+        server.close();
+        server = new CommandServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1,
+                CommandCache.DEFAULT_CAPACITY, null);
+        server.start();
+        StringBuilder flood = new StringBuilder("GT4500,2000000000,0,2000000000,0\n"
+                + "TORPEDO,SINGLE,2000000000\n");
+        for (int i = 0; i < 2000; i++) {
+            flood.append("TORPEDO,SINGLE,").append(CommandServer.MAX_COMMANDS_PER_LINE)
+                    .append('\n');
+        }
+        byte[] script = "GT4500,1,0,1,0\nTORPEDO,ALL\n".getBytes();
+        InetSocketAddress address = server.address();
+
+        try (Socket slow = new Socket(address.getAddress(), address.getPort())) {
+            // Act
+            slow.getOutputStream().write(flood.toString().getBytes());
+            slow.getOutputStream().flush();
+            // the server is busy with the slow client
+            slow.getInputStream().read();
+            String result = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                    () -> session(script));
+
+            // Assert
+            assertEquals(expected(script), result);
+        }
+    }
+
+    @Test
+    void session_Closed_JobsCancelled() throws IOException {
+        // Arrange
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < Runtime.getRuntime().availableProcessors(); i++) {
+            // would keep a thread of the shared pool busy for good
+            script.append("SUBMIT,FIRE,2147483647,10,0.5,10,0.5,SINGLE\n");
+        }
+        session(script.toString().getBytes());
+
+        // Act
+        JobScheduler jobs = new JobScheduler();
+        int id = jobs.submitFire(1, 1, 0, 1, 0, FiringMode.ALL, RandomSource.seeded(1));
+
+        // Assert
+        String status = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            while (!jobs.status(id).contains(": DONE")) {
+                Thread.sleep(1);
+            }
+            return jobs.status(id);
+        });
+        assertEquals("JOB 1: DONE 1 runs, 1 shots, 1 SUCCESS, 0 FAIL", status);
+    }
+}
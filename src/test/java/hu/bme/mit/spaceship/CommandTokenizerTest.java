@@ -0,0 +1,116 @@
+package hu.bme.mit.spaceship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class CommandTokenizerTest {
+
+    private CommandTokenizer tokens;
+
+    @BeforeEach
+    public void init() {
+        this.tokens = new CommandTokenizer();
+    }
+
+    private boolean tokenize(String line) {
+        byte[] bytes = line.getBytes();
+        return tokens.tokenize(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    @Test
+    void tokenize_Comment_Skipped() {
+        // Arrange
+
+        // Act
+        boolean result = tokenize("   # GT4500,1,0,1,0");
+
+        // Assert
+        assertFalse(result);
+    }
+
+    @Test
+    void tokenize_TrailingCommentAndEmptyTokens_Stripped() {
+        // Arrange
+
+        // Act
+        boolean result = tokenize("  torpedo,Single,,  # fire!");
+
+        // Assert
+        assertTrue(result);
+        assertEquals(2, tokens.count());
+        assertEquals("torpedo", tokens.token(0));
+        assertTrue(tokens.equalsIgnoreCase(1, "SINGLE".getBytes()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0", "-17", "+42", "2147483647", "-2147483648", "007"})
+    void parseInt_SameAsJdk(String number) {
+        // Arrange
+        tokenize("X," + number);
+
+        // Act
+        boolean result = tokens.tryParseInt(1);
+
+        // Assert
+        assertTrue(result);
+        assertEquals(Integer.parseInt(number), tokens.intValue());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "-", "2147483648", " 1", "1.0", "abc"})
+    void parseInt_Invalid_SameMessageAsJdk(String number) {
+        // Arrange
+        tokenize("X," + number + ",Y");
+        NumberFormatException expected =
+                assertThrows(NumberFormatException.class, () -> Integer.parseInt(number));
+
+        // Act
+        boolean result = tokens.tryParseInt(1);
+
+        // Assert
+        assertFalse(result);
+        assertEquals(expected.getMessage(), tokens.invalidNumberMessage());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0", "0.1", "-0", ".5", "1.", " 0.25 ", "123456789.123456789",
+            "1e-3", "0x1p3", "NaN", "0.30000000000000004", "-Infinity", "2.5f", "0X.8P-1d", "1E+2"})
+    void parseDouble_SameAsJdk(String number) {
+        // Arrange
+        tokenize("X," + number + ",Y");
+
+        // Act
+        boolean result = tokens.tryParseDouble(1);
+
+        // Assert
+        assertTrue(result);
+        assertEquals(Double.parseDouble(number), tokens.doubleValue());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", " ", "-", ".", "1.2.3", "abc", "1e", "1e+", "1e5.3", "1ff",
+            "0x", "0x1", "0x1.8", "0xp3", "NaNa", "-Infinit", "1d5"})
+    void parseDouble_Invalid_SameMessageAsJdk(String number) {
+        // Arrange
+        tokenize("X," + number + ",Y");
+        String token = tokens.token(1);
+        NumberFormatException expected =
+                assertThrows(NumberFormatException.class, () -> Double.parseDouble(token));
+
+        // Act
+        boolean result = tokens.tryParseDouble(1);
+
+        // Assert
+        assertFalse(result);
+        assertEquals(expected.getMessage(), tokens.invalidNumberMessage());
+    }
+}
@@ -0,0 +1,78 @@
+package hu.bme.mit.spaceship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ConfigurationTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void resolve_NoSources_BuiltInDefaults() {
+        // Act
+        Configuration config = Configuration.resolve(Map.of(), new Properties());
+
+        // Assert
+        assertEquals(Configuration.DEFAULT_FAILURE_RATE, config.failureRate());
+        assertEquals(Configuration.DEFAULT_TORPEDO_COUNT, config.torpedoCount());
+    }
+
+    @Test
+    void resolve_Environment_FailureRateFromIvtRate() {
+        // Act
+        Configuration config = Configuration.resolve(Map.of("IVT_RATE", "0.25"), new Properties());
+
+        // Assert
+        assertEquals(0.25, config.failureRate());
+        assertSame(ShipConfig.of(10, 0.25, 10, 0.25), config.defaultShip());
+    }
+
+    @Test
+    void resolve_InvalidIvtRate_DefaultFailureRate() {
+        // Act
+        Configuration config = Configuration.resolve(Map.of("IVT_RATE", "high"), new Properties());
+
+        // Assert
+        assertEquals(Configuration.DEFAULT_FAILURE_RATE, config.failureRate());
+    }
+
+    @Test
+    void resolve_AllSources_SystemPropertiesThenEnvironmentThenFile() throws IOException {
+        // Arrange
+        Path file = dir.resolve("spaceship.properties");
+        Files.writeString(file, "ivt.rate=0.1\ntorpedo.count=3\n");
+        Properties properties = new Properties();
+        properties.setProperty("spaceship.config", file.toString());
+        properties.setProperty("spaceship.ivt.rate", "0.5");
+
+        // Act
+        Configuration fromFile = Configuration.resolve(Map.of(), properties);
+        Configuration fromEnv =
+                Configuration.resolve(Map.of("SPACESHIP_TORPEDO_COUNT", "7"), properties);
+
+        // Assert
+        assertEquals(0.5, fromFile.failureRate());
+        assertEquals(3, fromFile.torpedoCount());
+        assertEquals(7, fromEnv.torpedoCount());
+    }
+
+    @Test
+    void resolve_MissingFile_Defaults() {
+        // Act
+        Configuration config = Configuration.resolve(
+                Map.of("SPACESHIP_CONFIG", dir.resolve("missing").toString()), new Properties());
+
+        // Assert
+        assertEquals(Configuration.DEFAULT_TORPEDO_COUNT, config.torpedoCount());
+    }
+}
@@ -35,4 +35,44 @@ class GT4500Test {
         // Assert
         assertEquals(true, result);
     }
+
+    @Test
+    void fireTorpedo_Salvo_EmptiesReliableShip() {
+        // Arrange
+
+        // Act
+        boolean result = ship.fireTorpedo(FiringMode.SALVO);
+
+        // Assert
+        assertEquals(true, result);
+        assertEquals(true, ship.isEmpty());
+    }
+
+    @Test
+    void fireTorpedo_Seeded_StoreHasSourceOfItsOwn() {
+        // Arrange
+        GT4500 seeded = new GT4500(100, 0.5, 0, 0.5, RandomSource.seeded(3));
+        TorpedoStore store = new TorpedoStore(100, 0.5, RandomSource.seeded(3).split());
+
+        for (int i = 0; i < 50; i++) {
+            // Act
+            boolean result = seeded.fireTorpedo(FiringMode.SINGLE);
+
+            // Assert
+            assertEquals(store.fire(1), result);
+        }
+    }
+
+    @Test
+    void fireSalvo_FailingStores_LaunchesNothing() {
+        // Arrange
+        GT4500 failing = new GT4500(5, 1.0, 5, 1.0, RandomSource.seeded(1));
+
+        // Act
+        int launched = failing.fireSalvo();
+
+        // Assert
+        assertEquals(0, launched);
+        assertEquals(false, failing.isEmpty());
+    }
 }
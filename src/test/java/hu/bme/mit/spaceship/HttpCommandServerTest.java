@@ -0,0 +1,89 @@
+package hu.bme.mit.spaceship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class HttpCommandServerTest {
+
+    private HttpCommandServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    public void init() throws IOException {
+        server = new HttpCommandServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                Executors.newFixedThreadPool(2), CommandCache.DEFAULT_CAPACITY, null);
+        server.start();
+    }
+
+    @AfterEach
+    public void close() {
+        server.close();
+    }
+
+    private URI uri() {
+        return URI.create("http://" + server.address().getHostString() + ":"
+                + server.address().getPort() + HttpCommandServer.PATH);
+    }
+
+    @Test
+    void post_Script_SameAsCommandLine() throws Exception {
+        // Arrange
+        byte[] script = Files.readAllBytes(Path.of("test-data", "input-3.txt"));
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        CommandLineInterface.run(new ByteArrayInputStream(script), expected);
+
+        // Act
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(uri()).POST(HttpRequest.BodyPublishers.ofByteArray(script))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        // Assert
+        assertEquals(200, response.statusCode());
+        assertEquals(expected.toString(), response.body());
+    }
+
+    @Test
+    void get_NotAllowed() throws Exception {
+        // Arrange
+
+        // Act
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri()).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        // Assert
+        assertEquals(405, response.statusCode());
+    }
+
+    @Test
+    void post_JobCommands_Rejected() throws Exception {
+        // Arrange
+        byte[] script = "SUBMIT,FIRE,1,1,0,1,0,ALL\nPOLL\n".getBytes();
+
+        // Act
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(uri()).POST(HttpRequest.BodyPublishers.ofByteArray(script))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        // Assert
+        String error = CommandError.JOBS_DISABLED.message() + System.lineSeparator();
+        assertEquals(error + error, response.body());
+    }
+}
@@ -0,0 +1,45 @@
+package hu.bme.mit.spaceship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+class InterpreterTest {
+
+    private static final String NL = System.lineSeparator();
+
+    private static final String BLOCK_WITH_COMMENTS = "GT4500,10,0,10,0\nREPEAT,3\n# c\n\n"
+            + "TORPEDO,SINGLE\nEND\nTORPEDO,SINGLE\n";
+
+    private static String run(Interpreter interpreter, String script) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Context ctx = new Context(new ResponseWriter(out));
+        CommandLineInterface.runSession(ctx,
+                LineReader.of(new ByteArrayInputStream(script.getBytes()), () -> {}),
+                interpreter);
+        ctx.out.flush();
+        return out.toString();
+    }
+
+    @Test
+    void handle_CommentsInBlock_Ignored() throws IOException {
+        // Act
+        String result = run(new Interpreter(), BLOCK_WITH_COMMENTS);
+
+        // Assert
+        assertEquals(("SUCCESS" + NL).repeat(5), result);
+    }
+
+    @Test
+    void handle_CommentsInBlockWithoutCache_Ignored() throws IOException {
+        // Act
+        String result = run(new Interpreter(null), BLOCK_WITH_COMMENTS);
+
+        // Assert
+        assertEquals(("SUCCESS" + NL).repeat(5), result);
+    }
+}
@@ -0,0 +1,230 @@
+package hu.bme.mit.spaceship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JobSchedulerTest {
+
+    private static final String NL = System.lineSeparator();
+
+    private final ExecutorService pool = Executors.newSingleThreadExecutor();
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void shutDown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Poll a job until it has ended.
+     */
+    private static String await(JobScheduler jobs, int id) throws InterruptedException {
+        String status = jobs.status(id);
+        while (status.contains(": QUEUED") || status.contains(": RUNNING")) {
+            Thread.sleep(1);
+            status = jobs.status(id);
+        }
+        return status;
+    }
+
+    @Test
+    void submitFire_ReliableTorpedoes_FiresUntilEmpty() throws InterruptedException {
+        // Arrange
+        JobScheduler jobs = new JobScheduler(pool);
+
+        // Act
+        int id = jobs.submitFire(3, 10, 0, 5, 0, FiringMode.SINGLE, RandomSource.seeded(1));
+        String status = await(jobs, id);
+
+        // Assert
+        assertEquals(1, id);
+        assertEquals("JOB 1: DONE 3 runs, 45 shots, 45 SUCCESS, 0 FAIL", status);
+    }
+
+    @Test
+    void submitFire_FailingTorpedoes_StopsAtShotLimit() throws InterruptedException {
+        // Arrange
+        JobScheduler jobs = new JobScheduler(pool);
+
+        // Act
+        int id = jobs.submitFire(1, 1, 1, 1, 1, FiringMode.ALL, RandomSource.seeded(1));
+        String status = await(jobs, id);
+
+        // Assert
+        assertEquals("JOB 1: DONE 1 runs, " + 2 * JobScheduler.MAX_SHOTS_PER_TORPEDO
+                + " shots, 0 SUCCESS, " + 2 * JobScheduler.MAX_SHOTS_PER_TORPEDO + " FAIL",
+                status);
+    }
+
+    @Test
+    void submitScript_TestData_SummarizesResults() throws InterruptedException {
+        // Arrange
+        JobScheduler jobs = new JobScheduler(pool);
+
+        // Act
+        int id = jobs.submitScript(Path.of("test-data", "input-3.txt").toString(),
+                RandomSource.seeded(1));
+        String status = await(jobs, id);
+
+        // Assert
+        assertTrue(status.startsWith("JOB 1: DONE 30 commands, "), status);
+    }
+
+    @Test
+    void submitScript_MissingFile_Fails() throws InterruptedException {
+        // Arrange
+        JobScheduler jobs = new JobScheduler(pool);
+
+        // Act
+        int id = jobs.submitScript("no-such-script.txt", RandomSource.seeded(1));
+        String status = await(jobs, id);
+
+        // Assert
+        assertTrue(status.startsWith("JOB 1: FAILED: "), status);
+    }
+
+    @Test
+    void submitScript_JobCommands_ReportedAsErrors() throws IOException, InterruptedException {
+        // Arrange
+        Path script = dir.resolve("input.txt");
+        Files.writeString(script, "SUBMIT,SCRIPT," + script + "\nSUBMIT,FIRE,1,1,0,1,0,ALL\n"
+                + "POLL\nCANCEL,1\nGT4500,1,0,1,0\nTORPEDO,ALL\n");
+        JobScheduler jobs = new JobScheduler(pool);
+
+        // Act
+        int id = jobs.submitScript(script.toString(), RandomSource.seeded(1));
+        String status = await(jobs, id);
+
+        // Assert
+        assertEquals("JOB 1: DONE 6 commands, 2 SUCCESS, 0 FAIL, 4 ERROR", status);
+    }
+
+    @Test
+    void cancel_QueuedJob_NeverRuns() throws InterruptedException {
+        // Arrange
+        CountDownLatch blocked = new CountDownLatch(1);
+        pool.submit(() -> {
+            blocked.await();
+            return null;
+        });
+        JobScheduler jobs = new JobScheduler(pool);
+        int id = jobs.submitFire(1, 10, 0, 10, 0, FiringMode.ALL, RandomSource.seeded(1));
+
+        // Act
+        String status = jobs.cancel(id);
+        blocked.countDown();
+
+        // Assert
+        assertEquals("JOB 1: CANCELLED after 0% (0/1 runs)", status);
+        assertEquals(status, await(jobs, id));
+    }
+
+    @Test
+    void cancel_RunningJob_Stops() throws InterruptedException {
+        // Arrange
+        JobScheduler jobs = new JobScheduler(pool);
+        int id = jobs.submitFire(Integer.MAX_VALUE, 10, 0.5, 10, 0.5, FiringMode.SINGLE,
+                RandomSource.seeded(1));
+        while (!jobs.status(id).contains(": RUNNING")) {
+            Thread.sleep(1);
+        }
+
+        // Act
+        jobs.cancel(id);
+        String status = await(jobs, id);
+
+        // Assert
+        assertTrue(status.startsWith("JOB 1: CANCELLED after "), status);
+    }
+
+    @Test
+    void cancel_RunningLongRun_Stops() throws InterruptedException {
+        // Arrange
+        JobScheduler jobs = new JobScheduler(pool);
+        int id = jobs.submitFire(1, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, 0, FiringMode.SINGLE,
+                RandomSource.seeded(1));
+        while (!jobs.status(id).contains(": RUNNING")) {
+            Thread.sleep(1);
+        }
+
+        // Act
+        jobs.cancel(id);
+        String status = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> await(jobs, id));
+
+        // Assert
+        assertEquals("JOB 1: CANCELLED after 0% (0/1 runs)", status);
+    }
+
+    @Test
+    void cancelAll_Jobs_AllStopped() throws InterruptedException {
+        // Arrange
+        JobScheduler jobs = new JobScheduler(pool);
+        int running = jobs.submitFire(Integer.MAX_VALUE, 10, 0.5, 10, 0.5, FiringMode.SINGLE,
+                RandomSource.seeded(1));
+        int queued = jobs.submitFire(1, 1, 0, 1, 0, FiringMode.ALL, RandomSource.seeded(2));
+
+        // Act
+        jobs.cancelAll();
+
+        // Assert
+        assertTrue(await(jobs, running).startsWith("JOB 1: CANCELLED after "));
+        assertTrue(await(jobs, queued).startsWith("JOB 2: CANCELLED after "));
+    }
+
+    @Test
+    void status_UnknownJob_Null() {
+        // Arrange
+        JobScheduler jobs = new JobScheduler(pool);
+        jobs.submitFire(1, 1, 0, 1, 0, FiringMode.ALL, RandomSource.seeded(1));
+
+        // Act
+        String status = jobs.status(2);
+
+        // Assert
+        assertNull(status);
+        assertNull(jobs.cancel(0));
+        assertEquals(1, jobs.statuses().size());
+    }
+
+    @Test
+    void execute_JobCommands_ReportsJobs() throws IOException {
+        // Arrange
+        Program program = ScriptCompiler.compile(LineReader.of(new ByteArrayInputStream(
+                "POLL\nSUBMIT,FIRE,1,1,0,1,0,ALL\nPOLL,2\nCANCEL,x\nSUBMIT,SCRIPT\n".getBytes()),
+                () -> {}));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Context ctx = new Context(new ResponseWriter(out));
+        ctx.seeds = RandomSource.seeded(1);
+
+        // Act
+        program.execute(ctx);
+        ctx.out.flush();
+
+        // Assert
+        List<String> lines = List.of(out.toString().split(NL));
+        assertEquals("No jobs", lines.get(0));
+        assertEquals("JOB 1: SUBMITTED", lines.get(1));
+        assertEquals("Unknown job: 2", lines.get(2));
+        assertTrue(lines.get(3).startsWith("Invalid numerical arguments passed: "));
+        assertEquals(CommandError.SUBMIT_USAGE.message(), lines.get(4));
+    }
+}
@@ -0,0 +1,141 @@
+package hu.bme.mit.spaceship;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JournalTest {
+
+    @TempDir
+    Path dir;
+
+    private static LineReader reader(String script) {
+        return LineReader.of(new ByteArrayInputStream(script.getBytes()), () -> {});
+    }
+
+    /**
+     * Run a session the way the command line interface does when journaling.
+     */
+    private static void record(Journal journal, long seed, String script, ResponseWriter out)
+            throws IOException {
+        journal.beginSession(seed);
+        CommandLineInterface.runSession(Journal.newContext(out, seed),
+                journal.recording(reader(script)), new Interpreter());
+    }
+
+    @Test
+    void replay_RecordedSessions_SameOutput() throws IOException {
+        // Arrange
+        Path file = dir.resolve("journal");
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ResponseWriter out = new ResponseWriter(expected);
+        try (Journal journal = Journal.open(file)) {
+            record(journal, 1, Files.readString(Path.of("test-data", "input-3.txt")), out);
+            record(journal, 2, "# random failures\nGT4500,10,0.5,10,0.5\nTORPEDO,ALL,20\n"
+                    + "REPEAT,3\nTORPEDO,SINGLE\n", out);
+            record(journal, 3, "GT4500,10,0.5,10,0.5\nTORPEDO,SINGLE,5\nEXIT\n", out);
+        }
+
+        // Act
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (LineReader lines = LineReader.of(file)) {
+            Journal.replay(lines, new ResponseWriter(result));
+        }
+
+        // Assert
+        assertEquals(expected.toString(), result.toString());
+    }
+
+    @Test
+    void replay_CommentsInBlock_SameOutput() throws IOException {
+        // Arrange
+        Path file = dir.resolve("journal");
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ResponseWriter out = new ResponseWriter(expected);
+        try (Journal journal = Journal.open(file)) {
+            record(journal, 1, "GT4500,10,0,10,0\nREPEAT,3\n# c\n\nTORPEDO,SINGLE\nEND\n"
+                    + "TORPEDO,SINGLE\n", out);
+        }
+        out.flush();
+
+        // Act
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (LineReader lines = LineReader.of(file)) {
+            Journal.replay(lines, new ResponseWriter(result));
+        }
+
+        // Assert
+        assertArrayEquals(expected.toByteArray(), result.toByteArray());
+        assertEquals(5, expected.toString().split(System.lineSeparator()).length);
+    }
+
+    @Test
+    void replay_JobCommands_RejectedBothTimes() throws IOException {
+        // Arrange
+        Path file = dir.resolve("journal");
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ResponseWriter out = new ResponseWriter(expected);
+        try (Journal journal = Journal.open(file)) {
+            record(journal, 1, "GT4500,10,0.5,10,0.5\nSUBMIT,FIRE,1,1,0,1,0,ALL\nPOLL\n"
+                    + "SUBMIT,SCRIPT,pom.xml\nCANCEL,1\nTORPEDO,ALL\n", out);
+        }
+        out.flush();
+
+        // Act
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (LineReader lines = LineReader.of(file)) {
+            Journal.replay(lines, new ResponseWriter(result));
+        }
+
+        // Assert
+        assertArrayEquals(expected.toByteArray(), result.toByteArray());
+        String error = CommandError.JOBS_DISABLED.message() + System.lineSeparator();
+        assertTrue(expected.toString().contains(error.repeat(4)), expected.toString());
+    }
+
+    @Test
+    void record_ManyLines_AllCommittedInOrder() throws IOException {
+        // Arrange
+        Path file = dir.resolve("journal");
+        byte[] line = "TORPEDO,SINGLE".getBytes();
+        Journal journal = Journal.open(file, 1024);
+
+        // Act
+        journal.beginSession(42);
+        for (int i = 0; i < 10_000; i++) {
+            journal.record(ByteBuffer.wrap(line), 0, line.length);
+        }
+        journal.record(ByteBuffer.wrap("# not recorded".getBytes()), 0, 14);
+        journal.close();
+
+        // Assert
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(10_001, lines.size());
+        assertEquals("#session 42", lines.get(0));
+        assertEquals("TORPEDO,SINGLE", lines.get(10_000));
+        assertEquals(10_001, journal.records());
+        assertTrue(journal.commits() >= 1 && journal.commits() <= journal.records());
+    }
+
+    @Test
+    void replay_MissingSessionHeader_Throws() {
+        // Arrange
+        LineReader lines = reader("GT4500,1,0,1,0\n");
+
+        // Act & Assert
+        assertThrows(IOException.class,
+                () -> Journal.replay(lines, new ResponseWriter(new ByteArrayOutputStream())));
+    }
+}
@@ -0,0 +1,65 @@
+package hu.bme.mit.spaceship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LineReaderTest {
+
+    private static final String INPUT =
+            "GT4500,1,0,1,0\r\nTORPEDO,SINGLE\n\nTORPEDO,ALL\r# a rather long comment\nEXIT";
+
+    private static final List<String> EXPECTED = List.of(
+            "GT4500,1,0,1,0", "TORPEDO,SINGLE", "", "TORPEDO,ALL", "# a rather long comment",
+            "EXIT");
+
+    private static List<String> readAll(LineReader reader) throws IOException {
+        List<String> lines = new ArrayList<>();
+        while (reader.next()) {
+            ByteBuffer buffer = reader.buffer();
+            StringBuilder line = new StringBuilder();
+            for (int i = reader.start(); i < reader.end(); i++) {
+                line.append((char) buffer.get(i));
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    @Test
+    void next_StreamWithSmallBuffer_AllLines() throws IOException {
+        // Arrange
+        LineReader reader = new StreamLineReader(new ByteArrayInputStream(INPUT.getBytes()),
+                () -> {}, 4);
+
+        // Act
+        List<String> lines = readAll(reader);
+
+        // Assert
+        assertEquals(EXPECTED, lines);
+    }
+
+    @Test
+    void next_MappedWithSmallWindow_AllLines(@TempDir Path dir) throws IOException {
+        // Arrange
+        Path file = dir.resolve("input.txt");
+        Files.write(file, INPUT.getBytes());
+        LineReader reader = new MappedLineReader(file, 32);
+
+        // Act
+        List<String> lines = readAll(reader);
+        reader.close();
+
+        // Assert
+        assertEquals(EXPECTED, lines);
+    }
+}
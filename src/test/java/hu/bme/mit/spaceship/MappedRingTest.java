@@ -0,0 +1,93 @@
+package hu.bme.mit.spaceship;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+class MappedRingTest {
+
+    private static MappedRing ring(int capacity) {
+        return new MappedRing(ByteBuffer.allocateDirect(MappedRing.size(capacity)), capacity);
+    }
+
+    private static byte[] record(MappedRing ring) {
+        byte[] bytes = new byte[ring.end() - ring.start()];
+        ring.copyTo(bytes, 0);
+        return bytes;
+    }
+
+    @Test
+    void offer_Full_Rejected() {
+        // Arrange
+        MappedRing ring = ring(64);
+        byte[] record = new byte[20];
+
+        // Act
+        boolean first = ring.offer(record, 0, record.length);
+        boolean second = ring.offer(record, 0, record.length);
+        boolean third = ring.offer(record, 0, record.length);
+
+        // Assert
+        assertTrue(first);
+        assertTrue(second);
+        assertFalse(third);
+    }
+
+    @Test
+    void poll_RecordsWrappingAround_ReceivedInOrder() {
+        // Arrange
+        MappedRing ring = ring(64);
+
+        // Act & Assert
+        for (int i = 0; i < 100; i++) {
+            byte[] record = ("record-" + i).getBytes();
+            assertTrue(ring.offer(record, 0, record.length));
+            assertTrue(ring.poll());
+            assertArrayEquals(record, record(ring));
+            ring.release();
+        }
+        assertFalse(ring.poll());
+    }
+
+    @Test
+    void poll_ConcurrentProducer_AllRecordsReceived() throws InterruptedException {
+        // Arrange
+        MappedRing ring = ring(1024);
+        int count = 100_000;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < count; i++) {
+                byte[] record = Integer.toString(i).getBytes();
+                while (!ring.offer(record, 0, record.length)) {
+                    Thread.onSpinWait();
+                }
+            }
+            while (!ring.offerEnd()) {
+                Thread.onSpinWait();
+            }
+        });
+
+        // Act
+        producer.start();
+        int received = 0;
+        while (true) {
+            while (!ring.poll()) {
+                Thread.onSpinWait();
+            }
+            if (ring.isEnd()) {
+                break;
+            }
+            assertEquals(Integer.toString(received), new String(record(ring)));
+            ring.release();
+            received++;
+        }
+        producer.join();
+
+        // Assert
+        assertEquals(count, received);
+    }
+}
@@ -0,0 +1,78 @@
+package hu.bme.mit.spaceship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class OptionsTest {
+
+    @Test
+    void parse_NoArguments_Interactive() {
+        // Arrange
+
+        // Act
+        Options options = Options.parse(new String[0]);
+
+        // Assert
+        assertTrue(options.isInteractive());
+    }
+
+    @Test
+    void parse_Scripts_Batch() {
+        // Arrange
+
+        // Act
+        Options options = Options.parse(new String[] {"a.txt", "-o", "out.txt", "b.txt"});
+
+        // Assert
+        assertFalse(options.isInteractive());
+        assertEquals(List.of(Path.of("a.txt"), Path.of("b.txt")), options.scripts);
+        assertEquals(Path.of("out.txt"), options.output);
+    }
+
+    @Test
+    void parse_MissingValue_Throws() {
+        // Arrange
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> Options.parse(new String[] {"--output"}));
+    }
+
+    @Test
+    void parse_PipelinedCompiledRuns_Throws() {
+        // Arrange
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> Options.parse(new String[] {"-p", "-r", "2", "a.txt"}));
+    }
+
+    @Test
+    void parse_CompactFormatOfServer_Throws() {
+        // Arrange
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> Options.parse(new String[] {"--format", "rle", "-l", "4500"}));
+        assertThrows(IllegalArgumentException.class,
+                () -> Options.parse(new String[] {"--http", "8080", "--format", "bits"}));
+        assertThrows(IllegalArgumentException.class,
+                () -> Options.parse(new String[] {"--ipc", "ring", "--format", "rle"}));
+    }
+
+    @Test
+    void parse_JournalCompiledRuns_Throws() {
+        // Arrange
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> Options.parse(new String[] {"--journal", "j.txt", "-r", "2", "a.txt"}));
+    }
+}
@@ -0,0 +1,126 @@
+package hu.bme.mit.spaceship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ParallelRunnerTest {
+
+    @Test
+    void run_ManyScripts_SameAsSequential(@TempDir Path dir) throws IOException {
+        // Arrange
+        List<Path> scripts = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            Path script = dir.resolve("input-" + i + ".txt");
+            Files.copy(Path.of("test-data", "input-" + (i % 2) + ".txt"), script);
+            scripts.add(script);
+        }
+        ParallelRunner runner = new ParallelRunner(4, dir.resolve("results"), null, 0);
+
+        // Act
+        List<ParallelRunner.Result> results = runner.run(scripts);
+
+        // Assert
+        assertEquals(scripts.size(), results.size());
+        for (ParallelRunner.Result result : results) {
+            assertNull(result.error);
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            CommandLineInterface.run(result.script, expected);
+            assertEquals(expected.toString(), Files.readString(result.output));
+        }
+    }
+
+    @Test
+    void run_Seeded_IndependentOfParallelism(@TempDir Path dir) throws IOException {
+        // Arrange
+        List<Path> scripts = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Path script = dir.resolve("random-" + i + ".txt");
+            Files.writeString(script, "GT4500,20,0.5,20,0.5\nTORPEDO,SINGLE,30\n");
+            scripts.add(script);
+        }
+
+        // Act
+        List<ParallelRunner.Result> parallel =
+                new ParallelRunner(4, dir.resolve("parallel"), RandomSource.seeded(7),
+                        CommandCache.DEFAULT_CAPACITY)
+                        .run(scripts);
+        List<ParallelRunner.Result> sequential =
+                new ParallelRunner(1, dir.resolve("sequential"), RandomSource.seeded(7), 0)
+                        .run(scripts);
+
+        // Assert
+        for (int i = 0; i < scripts.size(); i++) {
+            assertEquals(Files.readString(sequential.get(i).output),
+                    Files.readString(parallel.get(i).output));
+        }
+        assertNotEquals(Files.readString(parallel.get(0).output),
+                Files.readString(parallel.get(1).output));
+    }
+
+    @Test
+    void run_ScriptThrows_OthersRun(@TempDir Path dir) throws IOException {
+        // Arrange
+        List<Path> scripts = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Path script = dir.resolve("input-" + i + ".txt");
+            Files.writeString(script, "GT4500,1,0,1,0\nTORPEDO,ALL\n");
+            scripts.add(script);
+        }
+        // the ships of the first script cannot get a random source
+        RandomSource broken = new RandomSource() {
+            @Override
+            public double nextDouble() {
+                return 0;
+            }
+
+            @Override
+            public long nextLong() {
+                return 0;
+            }
+
+            @Override
+            public RandomSource split() {
+                throw new IllegalStateException("broken source");
+            }
+        };
+        List<RandomSource> sources = new ArrayList<>(List.of(broken, RandomSource.seeded(1)));
+        RandomSource seeds = new RandomSource() {
+            @Override
+            public double nextDouble() {
+                return 0;
+            }
+
+            @Override
+            public long nextLong() {
+                return 0;
+            }
+
+            @Override
+            public RandomSource split() {
+                return sources.remove(0);
+            }
+        };
+
+        // Act
+        List<ParallelRunner.Result> results =
+                new ParallelRunner(2, dir.resolve("results"), seeds, 0).run(scripts);
+
+        // Assert
+        assertTrue(results.get(0).error instanceof IllegalStateException);
+        assertNull(results.get(1).error);
+        String nl = System.lineSeparator();
+        assertEquals("SUCCESS" + nl + "SUCCESS" + nl, Files.readString(results.get(1).output));
+    }
+}
@@ -0,0 +1,102 @@
+package hu.bme.mit.spaceship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+class PipelinedRunnerTest {
+
+    private static final long SEED = 4500;
+
+    private static String runSequential(String script) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Context ctx = new Context(new ResponseWriter(out));
+        ctx.seeds = RandomSource.seeded(SEED);
+        CommandLineInterface.runSession(ctx, reader(script), new Interpreter());
+        return out.toString();
+    }
+
+    private static String runPipelined(PipelinedRunner runner, String script)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Context ctx = new Context(new ResponseWriter(out));
+        ctx.seeds = RandomSource.seeded(SEED);
+        runner.run(ctx, reader(script));
+        return out.toString();
+    }
+
+    private static LineReader reader(String script) {
+        return LineReader.of(new ByteArrayInputStream(script.getBytes()), () -> {});
+    }
+
+    /**
+     * @return a script spanning many batches, with blocks crossing the batch boundaries
+     */
+    private static String longScript(int lines) {
+        StringBuilder script = new StringBuilder("GT4500,10,0.3,10,0.3\n");
+        for (int i = 1; i < lines; i++) {
+            if (i % 1000 == 0) {
+                script.append("REPEAT,2,SUMMARY\nGT4500,alpha,5,0.5,5,0.5\nTORPEDO,alpha,ALL\n")
+                        .append("END\n");
+            } else if (i % 97 == 0) {
+                script.append("GT4500,10,0.3,10,0.3\n");
+            } else if (i % 13 == 0) {
+                script.append("TORPEDO,BURST\n");
+            } else {
+                script.append(i % 2 == 0 ? "TORPEDO,SINGLE\n" : "TORPEDO,ALL,2\n");
+            }
+        }
+        return script.toString();
+    }
+
+    @Test
+    void run_TestData_SameAsSequential() throws IOException {
+        // Arrange
+        PipelinedRunner runner = new PipelinedRunner(WaitStrategy.YIELD);
+
+        for (int i = 1; i <= 3; i++) {
+            String script = Files.readString(Path.of("test-data", "input-" + i + ".txt"));
+
+            // Act
+            String result = runPipelined(runner, script);
+
+            // Assert
+            assertEquals(runSequential(script), result, "input-" + i);
+        }
+    }
+
+    @Test
+    void run_LongScript_SameAsSequential() throws IOException {
+        // Arrange
+        String script = longScript(10 * PipelinedRunner.BATCH_LINES);
+        PipelinedRunner runner = new PipelinedRunner(WaitStrategy.YIELD);
+
+        // Act
+        String result = runPipelined(runner, script);
+
+        // Assert
+        assertEquals(runSequential(script), result);
+    }
+
+    @Test
+    void run_Exit_StopsAndRunnerReusable() throws IOException {
+        // Arrange
+        String script = longScript(3 * PipelinedRunner.BATCH_LINES) + "EXIT\n"
+                + longScript(3 * PipelinedRunner.BATCH_LINES);
+        PipelinedRunner runner = new PipelinedRunner(WaitStrategy.PARK);
+
+        // Act
+        String first = runPipelined(runner, script);
+        String second = runPipelined(runner, "GT4500,1,0,1,0\nTORPEDO,ALL\nREPEAT,2\n");
+
+        // Assert
+        assertEquals(runSequential(script), first);
+        assertEquals(String.format("SUCCESS%nSUCCESS%nMissing END of REPEAT block%n"), second);
+    }
+}
@@ -0,0 +1,117 @@
+package hu.bme.mit.spaceship;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.function.IntFunction;
+
+/**
+ * Compares the random sources of the torpedo stores with the {@link Random} used before: the
+ * time per random number, and the time and memory needed to create and fire many ships.
+ *
+ * Not a unit test; run it with
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -DmainClass=hu.bme.mit.spaceship.RandomSourceBenchmark [-Dexec.args="SHIPS"]</code>
+ */
+public final class RandomSourceBenchmark {
+
+    private static final int NUMBERS = 50_000_000;
+    private static final int ROUNDS = 5;
+    private static final long SEED = 42;
+
+    // keeps the results alive, so the measured work is not optimized away
+    private static double sink;
+
+    private RandomSourceBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int ships = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        System.out.printf("%-28s %10s%n", "nextDouble", "[ns]");
+        Random random = new Random(SEED);
+        SplittableRandom splittable = new SplittableRandom(SEED);
+        RandomSource adapted = RandomSource.of(new Random(SEED));
+        RandomSource seeded = RandomSource.seeded(SEED);
+        RandomSource current = RandomSource.current();
+        for (int round = 0; round < ROUNDS; round++) {
+            boolean last = round == ROUNDS - 1;
+            report(last, "java.util.Random", time(() -> {
+                for (int i = 0; i < NUMBERS; i++) {
+                    sink += random.nextDouble();
+                }
+            }) / NUMBERS);
+            report(last, "SplittableRandom", time(() -> {
+                for (int i = 0; i < NUMBERS; i++) {
+                    sink += splittable.nextDouble();
+                }
+            }) / NUMBERS);
+            report(last, "RandomSource.of(Random)", numbers(adapted));
+            report(last, "RandomSource.seeded", numbers(seeded));
+            report(last, "RandomSource.current", numbers(current));
+        }
+
+        System.out.printf("%n%-28s %10s %10s%n", ships + " ships", "[ns/ship]", "[B/ship]");
+        RandomSource seeds = RandomSource.seeded(SEED);
+        Random randomSeeds = new Random(SEED);
+        for (int round = 0; round < ROUNDS; round++) {
+            boolean last = round == ROUNDS - 1;
+            fleet(last, "Random per ship", ships, i -> new GT4500(10, 0.1, 10, 0.1,
+                    new Random(randomSeeds.nextLong())));
+            fleet(last, "split source per ship", ships,
+                    i -> new GT4500(10, 0.1, 10, 0.1, seeds.split()));
+            fleet(last, "shared thread source", ships, i -> new GT4500(10, 0.1, 10, 0.1));
+        }
+    }
+
+    private static double numbers(RandomSource source) {
+        return time(() -> {
+            for (int i = 0; i < NUMBERS; i++) {
+                sink += source.nextDouble();
+            }
+        }) / NUMBERS;
+    }
+
+    /**
+     * Create ships, keeping all of them alive, and fire each of them once.
+     */
+    private static void fleet(boolean last, String name, int count,
+            IntFunction<GT4500> factory) {
+        GT4500[] fleet = new GT4500[count];
+        long allocated = allocatedBytes();
+        double nanos = time(() -> {
+            for (int i = 0; i < count; i++) {
+                fleet[i] = factory.apply(i);
+                sink += fleet[i].fireTorpedo(FiringMode.ALL) ? 1 : 0;
+            }
+        });
+        allocated = allocatedBytes() - allocated;
+        if (last) {
+            System.out.printf("%-28s %10.1f %10d%n", name, nanos / count, allocated / count);
+        }
+    }
+
+    private static void report(boolean last, String name, double nanos) {
+        if (last) {
+            System.out.printf("%-28s %10.2f%n", name, nanos);
+        }
+    }
+
+    private static double time(Runnable work) {
+        long start = System.nanoTime();
+        work.run();
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * @return the bytes allocated by the current thread so far, or 0 if it is not measured
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,99 @@
+package hu.bme.mit.spaceship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class RandomSourceTest {
+
+    @Test
+    void seeded_SameSeed_SameNumbers() {
+        // Arrange
+        RandomSource first = RandomSource.seeded(42);
+        RandomSource second = RandomSource.seeded(42);
+
+        // Act
+        for (int i = 0; i < 1000; i++) {
+            // Assert
+            assertEquals(first.nextLong(), second.nextLong());
+        }
+    }
+
+    @Test
+    void seeded_ConsecutiveSeeds_DifferentNumbers() {
+        // Arrange
+        RandomSource first = RandomSource.seeded(1);
+        RandomSource second = RandomSource.seeded(2);
+
+        // Act
+        long a = first.nextLong();
+        long b = second.nextLong();
+
+        // Assert
+        assertNotEquals(a, b);
+    }
+
+    @Test
+    void nextDouble_ManyValues_UniformInUnitInterval() {
+        // Arrange
+        RandomSource source = RandomSource.seeded(3);
+        int[] buckets = new int[10];
+
+        // Act
+        for (int i = 0; i < 100_000; i++) {
+            double value = source.nextDouble();
+            assertTrue(value >= 0.0 && value < 1.0, Double.toString(value));
+            buckets[(int) (value * buckets.length)]++;
+        }
+
+        // Assert
+        for (int count : buckets) {
+            assertTrue(count > 9_000 && count < 11_000, Integer.toString(count));
+        }
+    }
+
+    @Test
+    void split_SameOrder_Reproducible() {
+        // Arrange
+        RandomSource first = RandomSource.seeded(5);
+        RandomSource second = RandomSource.seeded(5);
+
+        // Act
+        RandomSource a1 = first.split();
+        RandomSource a2 = first.split();
+        RandomSource b1 = second.split();
+        RandomSource b2 = second.split();
+
+        // Assert
+        assertEquals(a1.nextLong(), b1.nextLong());
+        assertEquals(a2.nextLong(), b2.nextLong());
+        assertNotEquals(a1.nextLong(), a2.nextLong());
+    }
+
+    @Test
+    void of_Random_SameNumbersAsRandom() {
+        // Arrange
+        Random random = new Random(9);
+        RandomSource source = RandomSource.of(new Random(9));
+
+        // Act
+        double value = source.nextDouble();
+
+        // Assert
+        assertEquals(random.nextDouble(), value);
+    }
+
+    @Test
+    void current_SameThread_SameSource() {
+        // Act
+        RandomSource source = RandomSource.current();
+
+        // Assert
+        assertSame(source, RandomSource.current());
+    }
+}
@@ -0,0 +1,49 @@
+package hu.bme.mit.spaceship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ResponseWriterTest {
+
+    private static final String NL = System.lineSeparator();
+
+    private ByteArrayOutputStream out;
+    private ResponseWriter writer;
+
+    @BeforeEach
+    public void init() {
+        this.out = new ByteArrayOutputStream();
+        this.writer = new ResponseWriter(out, 64);
+    }
+
+    @Test
+    void result_Buffered_WrittenOnFlush() {
+        // Arrange
+        writer.result(true);
+        writer.println("Unknown command: 'X'");
+
+        // Act
+        String beforeFlush = out.toString();
+        writer.flush();
+
+        // Assert
+        assertEquals("", beforeFlush);
+        assertEquals("SUCCESS" + NL + "Unknown command: 'X'" + NL, out.toString());
+    }
+
+    @Test
+    void result_AutoFlush_WrittenImmediately() {
+        // Arrange
+        writer.setAutoFlush(true);
+
+        // Act
+        writer.result(false);
+
+        // Assert
+        assertEquals("FAIL" + NL, out.toString());
+    }
+}
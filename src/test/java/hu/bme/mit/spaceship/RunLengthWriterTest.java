@@ -0,0 +1,51 @@
+package hu.bme.mit.spaceship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+class RunLengthWriterTest {
+
+    private static final String NL = System.lineSeparator();
+
+    @Test
+    void result_Runs_CollapsedIntoSingleLines() {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResponseWriter writer = new RunLengthWriter(out, 64);
+
+        // Act
+        for (int i = 0; i < 1000; i++) {
+            writer.result(true);
+        }
+        writer.result(false);
+        writer.println("No ship has been initialized");
+        writer.result(false);
+        writer.result(false);
+        writer.flush();
+
+        // Assert
+        assertEquals("SUCCESS x1000" + NL + "FAIL" + NL + "No ship has been initialized" + NL
+                + "FAIL x2" + NL, out.toString());
+    }
+
+    @Test
+    void expand_Runs_SameAsText() throws IOException {
+        // Arrange
+        String rle = "SUCCESS x3\nFAIL\nUnknown command: 'SUCCESS X2'\nFAIL x2\nSUCCESS x\n";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        RunLengthWriter.expand(LineReader.of(new ByteArrayInputStream(rle.getBytes()), () -> {}),
+                new ResponseWriter(out));
+
+        // Assert
+        assertEquals("SUCCESS" + NL + "SUCCESS" + NL + "SUCCESS" + NL + "FAIL" + NL
+                + "Unknown command: 'SUCCESS X2'" + NL + "FAIL" + NL + "FAIL" + NL
+                + "SUCCESS x" + NL, out.toString());
+    }
+}
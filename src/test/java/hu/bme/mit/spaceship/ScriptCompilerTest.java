@@ -0,0 +1,92 @@
+package hu.bme.mit.spaceship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+class ScriptCompilerTest {
+
+    private static final String NL = System.lineSeparator();
+
+    private static Program compile(String script) throws IOException {
+        return ScriptCompiler.compile(
+                LineReader.of(new ByteArrayInputStream(script.getBytes()), () -> {}));
+    }
+
+    private static String execute(Program program, Long seed) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Context ctx = new Context(new ResponseWriter(out));
+        if (seed != null) {
+            ctx.seeds = RandomSource.seeded(seed);
+        }
+        program.execute(ctx);
+        ctx.out.flush();
+        return out.toString();
+    }
+
+    @Test
+    void compile_TorpedoBeforeShip_ResolvedAsError() throws IOException {
+        // Arrange
+        Program program = compile("TORPEDO,BURST\nTORPEDO,alpha,SINGLE\nGT4500,1,0,1,0\n"
+                + "TORPEDO,BURST\nEXIT\nTORPEDO,SINGLE\n");
+
+        // Act
+        String result = execute(program, null);
+
+        // Assert
+        assertEquals(5, program.size());
+        assertEquals("No ship has been initialized" + NL + "Unknown ship: 'alpha'" + NL
+                + "SUCCESS" + NL + "Unknown firing mode: 'BURST'" + NL, result);
+    }
+
+    @Test
+    void execute_SameSeed_SameResults() throws IOException {
+        // Arrange
+        StringBuilder script = new StringBuilder("GT4500,100,0.5,100,0.5\n");
+        for (int i = 0; i < 100; i++) {
+            script.append("TORPEDO,ALL\n");
+        }
+        Program program = compile(script.toString());
+
+        // Act
+        String first = execute(program, 42L);
+        String second = execute(program, 42L);
+        String other = execute(program, 43L);
+
+        // Assert
+        assertEquals(first, second);
+        assertNotEquals(first, other);
+    }
+
+    @Test
+    void compile_RepeatBlock_BodyCompiledOnce() throws IOException {
+        // Arrange
+        Program program = compile("GT4500,1000,0,1000,0\nREPEAT,100,SUMMARY\nREPEAT,10\n"
+                + "TORPEDO,SINGLE,2\nEND\nEND\n");
+
+        // Act
+        String result = execute(program, null);
+
+        // Assert
+        assertEquals(4, program.size());
+        assertEquals("SUCCESS" + NL + "SUMMARY: 2000 SUCCESS, 0 FAIL, 0 ERROR" + NL, result);
+    }
+
+    @Test
+    void compile_ExitInRepeatBlock_StopsExecution() throws IOException {
+        // Arrange
+        Program program = compile("GT4500,10,0,10,0\nREPEAT,5\nTORPEDO,SINGLE\nEXIT\nEND\n"
+                + "TORPEDO,SINGLE\n");
+
+        // Act
+        String result = execute(program, null);
+
+        // Assert
+        assertEquals("SUCCESS" + NL + "SUCCESS" + NL, result);
+    }
+}
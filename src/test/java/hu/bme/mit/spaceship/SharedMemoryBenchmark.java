@@ -0,0 +1,113 @@
+package hu.bme.mit.spaceship;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the round-trip latency of single commands sent through a {@link SharedMemoryChannel}
+ * to a simulator running in a separate process, for each wait strategy.
+ *
+ * Not a unit test; run it with
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -DmainClass=hu.bme.mit.spaceship.SharedMemoryBenchmark
+ * [-Dexec.args="ROUND_TRIPS [WAIT...]"]</code>
+ *
+ * Spinning only makes sense if both processes have a core of their own.
+ */
+public final class SharedMemoryBenchmark {
+
+    private static final int WARM_UP = 200_000;
+
+    private SharedMemoryBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int roundTrips = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        WaitStrategy[] waits = WaitStrategy.values();
+        if (args.length > 1) {
+            waits = new WaitStrategy[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                waits[i - 1] = WaitStrategy.valueOf(args[i].toUpperCase());
+            }
+        }
+        System.out.printf("%-6s %10s %10s %10s %10s %10s %10s  [ns]%n", "wait", "min", "p50",
+                "p90", "p99", "p99.9", "max");
+        for (WaitStrategy wait : waits) {
+            long[] latencies = run(wait, roundTrips);
+            Arrays.sort(latencies);
+            System.out.printf("%-6s %10d %10d %10d %10d %10d %10d%n", wait, latencies[0],
+                    percentile(latencies, 50), percentile(latencies, 90),
+                    percentile(latencies, 99), percentile(latencies, 99.9),
+                    latencies[latencies.length - 1]);
+        }
+    }
+
+    private static long[] run(WaitStrategy wait, int roundTrips) throws Exception {
+        Path file = Files.createTempFile("spaceship", ".ring");
+        Files.delete(file);
+        String classes = Path.of(CommandLineInterface.class.getProtectionDomain().getCodeSource()
+                .getLocation().toURI()).toString();
+        Process simulator = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", classes, CommandLineInterface.class.getName(),
+                "--ipc", file.toString(), "--wait", wait.name())
+                .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try (SharedMemoryChannel channel =
+                SharedMemoryChannel.open(file, wait, TimeUnit.SECONDS.toNanos(30))) {
+            byte[] response = new byte[channel.results().maxRecordLength()];
+            roundTrip(channel, wait, "GT4500,2000000000,0,2000000000,0".getBytes(), response);
+
+            byte[] command = "TORPEDO,SINGLE".getBytes();
+            for (int i = 0; i < Math.min(WARM_UP, roundTrips); i++) {
+                roundTrip(channel, wait, command, response);
+            }
+            long[] latencies = new long[roundTrips];
+            for (int i = 0; i < roundTrips; i++) {
+                long start = System.nanoTime();
+                roundTrip(channel, wait, command, response);
+                latencies[i] = System.nanoTime() - start;
+            }
+
+            while (!channel.commands().offerEnd()) {
+                Thread.onSpinWait();
+            }
+            return latencies;
+        } finally {
+            simulator.waitFor(10, TimeUnit.SECONDS);
+            simulator.destroy();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Send a command and wait for its result line.
+     */
+    private static void roundTrip(SharedMemoryChannel channel, WaitStrategy wait, byte[] command,
+            byte[] response) {
+        for (long attempt = 0; !channel.commands().offer(command, 0, command.length); attempt++) {
+            wait.idle(attempt);
+        }
+        MappedRing results = channel.results();
+        boolean complete = false;
+        while (!complete) {
+            for (long attempt = 0; !results.poll(); attempt++) {
+                wait.idle(attempt);
+            }
+            int length = results.end() - results.start();
+            if (length > 0) {
+                results.copyTo(response, 0);
+                complete = response[length - 1] == '\n';
+            }
+            results.release();
+        }
+    }
+
+    private static long percentile(long[] sorted, double percent) {
+        int index = (int) Math.ceil(percent / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
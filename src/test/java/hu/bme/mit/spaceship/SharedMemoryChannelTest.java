@@ -0,0 +1,74 @@
+package hu.bme.mit.spaceship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SharedMemoryChannelTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void serve_Script_SameAsCommandLine() throws Exception {
+        // Arrange
+        Path input = Path.of("test-data", "input-3.txt");
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        CommandLineInterface.run(new ByteArrayInputStream(Files.readAllBytes(input)), expected);
+        Path file = dir.resolve("ring");
+        ExecutorService simulator = Executors.newSingleThreadExecutor();
+
+        // Act
+        Future<Long> commands = simulator.submit(() -> {
+            try (SharedMemoryChannel channel = SharedMemoryChannel.create(file, 1024)) {
+                return channel.serve(new Context(null), new Interpreter(), WaitStrategy.YIELD);
+            }
+        });
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (SharedMemoryChannel driver = SharedMemoryChannel.open(file, WaitStrategy.YIELD,
+                TimeUnit.SECONDS.toNanos(10))) {
+            for (String line : Files.readAllLines(input)) {
+                byte[] bytes = line.getBytes();
+                while (!driver.commands().offer(bytes, 0, bytes.length)) {
+                    Thread.yield();
+                }
+            }
+            while (!driver.commands().offerEnd()) {
+                Thread.yield();
+            }
+            receive(driver.results(), result);
+        }
+        simulator.shutdown();
+
+        // Assert
+        assertEquals(expected.toString(), result.toString());
+        assertEquals(30, commands.get());
+    }
+
+    private static void receive(MappedRing results, ByteArrayOutputStream out)
+            throws IOException {
+        while (true) {
+            while (!results.poll()) {
+                Thread.yield();
+            }
+            if (results.isEnd()) {
+                return;
+            }
+            byte[] bytes = new byte[results.end() - results.start()];
+            results.copyTo(bytes, 0);
+            out.write(bytes);
+            results.release();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package hu.bme.mit.spaceship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+class ShipConfigTest {
+
+    @Test
+    void of_SameValues_SameInstance() {
+        // Act
+        ShipConfig first = ShipConfig.of(10, 0.1, 20, 0.2);
+        ShipConfig second = ShipConfig.of(10, 0.1, 20, 0.2);
+
+        // Assert
+        assertSame(first, second);
+        assertSame(StoreConfig.of(20, 0.2), first.getSecondary());
+    }
+
+    @Test
+    void of_DifferentValues_DifferentConfigs() {
+        // Act
+        ShipConfig first = ShipConfig.of(10, 0.1, 20, 0.2);
+        ShipConfig second = ShipConfig.of(20, 0.2, 10, 0.1);
+
+        // Assert
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    void newGT4500_Config_StoresOfConfig() {
+        // Arrange
+        GT4500 ship = new GT4500(ShipConfig.of(1, 0, 0, 0), null);
+
+        // Act
+        boolean result = ship.fireTorpedo(FiringMode.SINGLE);
+
+        // Assert
+        assertEquals(true, result);
+        assertEquals(true, ship.isEmpty());
+    }
+}
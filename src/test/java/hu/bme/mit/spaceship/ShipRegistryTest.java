@@ -0,0 +1,70 @@
+package hu.bme.mit.spaceship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ShipRegistryTest {
+
+    private ShipRegistry registry;
+
+    @BeforeEach
+    public void init() {
+        this.registry = new ShipRegistry();
+    }
+
+    private static ByteBuffer name(String name) {
+        return ByteBuffer.wrap(name.getBytes());
+    }
+
+    @Test
+    void get_ManyShips_AllFound() {
+        // Arrange
+        SpaceShip[] ships = new SpaceShip[5000];
+        for (int i = 0; i < ships.length; i++) {
+            ships[i] = new GT4500();
+            ByteBuffer name = name("ship-" + i);
+            registry.put(name, 0, name.limit(), ships[i]);
+        }
+
+        // Act & Assert
+        assertEquals(ships.length, registry.size());
+        for (int i = 0; i < ships.length; i++) {
+            ByteBuffer name = name("ship-" + i);
+            assertSame(ships[i], registry.get(name, 0, name.limit()));
+        }
+    }
+
+    @Test
+    void get_SliceOfLine_Found() {
+        // Arrange
+        SpaceShip ship = new GT4500();
+        registry.put(name("alpha"), 0, 5, ship);
+
+        // Act
+        SpaceShip result = registry.get(name("TORPEDO,alpha,ALL"), 8, 13);
+
+        // Assert
+        assertSame(ship, result);
+        assertNull(registry.get(name("alph"), 0, 4));
+    }
+
+    @Test
+    void put_SameName_Replaced() {
+        // Arrange
+        SpaceShip ship = new GT4500();
+        registry.put(name("alpha"), 0, 5, new GT4500());
+
+        // Act
+        registry.put(name("alpha"), 0, 5, ship);
+
+        // Assert
+        assertEquals(1, registry.size());
+        assertSame(ship, registry.get(name("alpha"), 0, 5));
+    }
+}
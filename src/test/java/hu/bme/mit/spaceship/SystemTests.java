@@ -55,6 +55,58 @@ class SystemTests {
         }
     }
 
+    /**
+     * Same as {@link #runCommandsFromFile_Success(Path, Path)}, but the input file is memory-mapped
+     * by the command line interface.
+     */
+    @ParameterizedTest
+    @MethodSource("provideTestFilePaths")
+    void runCommandsFromMappedFile_Success(Path input, Path output) throws IOException {
+        // Arrange
+        OutputStream actualOut = new ByteArrayOutputStream();
+
+        // Act
+        CommandLineInterface.run(input, actualOut);
+
+        // Assert
+        if (!Files.exists(output)) {
+            inconclusive();
+        } else {
+            String expected = normalizeString(Files.readString(output));
+            String actual = normalizeString(actualOut.toString());
+            assertEquals(expected, actual, output.toString());
+        }
+    }
+
+    /**
+     * Same as {@link #runCommandsFromFile_Success(Path, Path)}, but the input file is compiled
+     * before being executed.
+     */
+    @ParameterizedTest
+    @MethodSource("provideTestFilePaths")
+    void runCompiledCommandsFromFile_Success(Path input, Path output) throws IOException {
+        // Arrange
+        OutputStream actualOut = new ByteArrayOutputStream();
+        Program program;
+        try (LineReader lines = LineReader.of(input)) {
+            program = ScriptCompiler.compile(lines);
+        }
+        Context ctx = new Context(new ResponseWriter(actualOut));
+
+        // Act
+        program.execute(ctx);
+        ctx.out.flush();
+
+        // Assert
+        if (!Files.exists(output)) {
+            inconclusive();
+        } else {
+            String expected = normalizeString(Files.readString(output));
+            String actual = normalizeString(actualOut.toString());
+            assertEquals(expected, actual, output.toString());
+        }
+    }
+
     private static Stream<Arguments> provideTestFilePaths() {
         PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:**/input*");
 
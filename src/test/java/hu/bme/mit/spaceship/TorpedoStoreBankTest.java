@@ -0,0 +1,107 @@
+package hu.bme.mit.spaceship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class TorpedoStoreBankTest {
+
+    @Test
+    void fire_Success() {
+        // Arrange
+        TorpedoStoreBank bank = new TorpedoStoreBank(3, StoreConfig.of(1, 0.0), null);
+
+        // Act
+        boolean result = bank.fire(1, 1);
+
+        // Assert
+        assertEquals(true, result);
+        assertEquals(true, bank.isEmpty(1));
+        assertEquals(1, bank.getTorpedoCount(0));
+    }
+
+    @Test
+    void fire_MoreThanStored_Fails() {
+        // Arrange
+        TorpedoStoreBank bank = new TorpedoStoreBank(1, StoreConfig.of(2, 0.0), null);
+
+        // Act
+        bank.fire(0, 1);
+
+        // Assert
+        assertEquals(false, bank.fire(0, 2));
+        assertThrows(IllegalArgumentException.class, () -> bank.fire(0, 0));
+        assertEquals(1, bank.getTorpedoCount(0));
+    }
+
+    @Test
+    void fire_SameSource_SameResultsAsStores() {
+        // Arrange
+        int[] counts = {5, 1, 3, 8};
+        double[] rates = {0.5, 0.1, 0.9, 0.3};
+        TorpedoStoreBank bank = new TorpedoStoreBank(counts, rates, RandomSource.seeded(11));
+        RandomSource source = RandomSource.seeded(11);
+        TorpedoStore[] stores = new TorpedoStore[counts.length];
+        for (int i = 0; i < stores.length; i++) {
+            stores[i] = new TorpedoStore(counts[i], rates[i], source);
+        }
+
+        // Act
+        for (int shot = 0; shot < 20; shot++) {
+            int i = shot % counts.length;
+            if (!stores[i].isEmpty()) {
+                // Assert
+                assertEquals(stores[i].fire(1), bank.fire(i, 1));
+                assertEquals(stores[i].getTorpedoCount(), bank.getTorpedoCount(i));
+            }
+        }
+    }
+
+    @Test
+    void fireAll_SameSource_SameResultsAsStores() {
+        // Arrange
+        int size = 1000;
+        TorpedoStoreBank bank =
+                new TorpedoStoreBank(size, StoreConfig.of(4, 0.4), RandomSource.seeded(3));
+        RandomSource source = RandomSource.seeded(3);
+        TorpedoStore[] stores = new TorpedoStore[size];
+        for (int i = 0; i < size; i++) {
+            stores[i] = new TorpedoStore(4, 0.4, source);
+        }
+
+        for (int round = 0; round < 5; round++) {
+            // Act
+            int successes = bank.fireAll(2);
+
+            // Assert
+            int expected = 0;
+            for (TorpedoStore store : stores) {
+                if (store.getTorpedoCount() >= 2 && store.fire(2)) {
+                    expected++;
+                }
+            }
+            assertEquals(expected, successes);
+        }
+        for (int i = 0; i < size; i++) {
+            assertEquals(stores[i].getTorpedoCount(), bank.getTorpedoCount(i));
+        }
+    }
+
+    @Test
+    void fireAll_ReliableStores_EmptiesBank() {
+        // Arrange
+        TorpedoStoreBank bank = new TorpedoStoreBank(100, StoreConfig.of(3, 0.0), null);
+
+        // Act
+        int first = bank.fireAll(2);
+        int second = bank.fireAll(2);
+        int third = bank.fireAll(1);
+
+        // Assert
+        assertEquals(100, first);
+        assertEquals(0, second);
+        assertEquals(100, third);
+        assertEquals(0, bank.countNonEmpty());
+    }
+}
@@ -0,0 +1,124 @@
+package hu.bme.mit.spaceship;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntPredicate;
+
+/**
+ * Measures the throughput of threads firing the same torpedo store: the lock-free
+ * {@link TorpedoStore} compared with the previous check-then-decrement guarded by a lock.
+ *
+ * Not a unit test; run it with
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -DmainClass=hu.bme.mit.spaceship.TorpedoStoreBenchmark [-Dexec.args="SHOTS [THREADS...]"]</code>
+ *
+ * Contention only shows with at least as many cores as threads.
+ */
+public final class TorpedoStoreBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    private TorpedoStoreBenchmark() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int shots = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            threadCounts.add(Integer.parseInt(args[i]));
+        }
+        if (threadCounts.isEmpty()) {
+            int cores = Runtime.getRuntime().availableProcessors();
+            for (int threads = 1; threads <= Math.max(cores, 4); threads *= 2) {
+                threadCounts.add(threads);
+            }
+        }
+
+        System.out.printf("%-8s %14s %14s  [Mshots/s]%n", "threads", "lock-free", "synchronized");
+        for (int threads : threadCounts) {
+            double lockFree = 0;
+            double locked = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                TorpedoStore store = new TorpedoStore(shots, 0.1);
+                lockFree = run(threads, store::fire, store::isEmpty);
+                SynchronizedStore baseline = new SynchronizedStore(shots, 0.1);
+                locked = run(threads, baseline::fire, baseline::isEmpty);
+            }
+            System.out.printf("%-8d %14.1f %14.1f%n", threads, lockFree, locked);
+        }
+    }
+
+    /**
+     * Fire single torpedoes from the threads until the store is empty.
+     *
+     * @return the shots per microsecond
+     */
+    private static double run(int threads, IntPredicate fire, BooleanSupplier isEmpty)
+            throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        long[] attempts = new long[threads];
+        for (int i = 0; i < threads; i++) {
+            int worker = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long count = 0;
+                while (!isEmpty.getAsBoolean()) {
+                    fire.test(1);
+                    count++;
+                }
+                attempts[worker] = count;
+            });
+            thread.start();
+            workers.add(thread);
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : workers) {
+            thread.join();
+        }
+        long nanos = System.nanoTime() - begin;
+        long total = 0;
+        for (long count : attempts) {
+            total += count;
+        }
+        return total * 1e3 / nanos;
+    }
+
+    /**
+     * The store as it was before: a plain count, here guarded by the lock of the store.
+     */
+    private static final class SynchronizedStore {
+        private final double failureRate;
+        private int torpedoCount;
+
+        SynchronizedStore(int torpedoCount, double failureRate) {
+            this.torpedoCount = torpedoCount;
+            this.failureRate = failureRate;
+        }
+
+        synchronized boolean fire(int numberOfTorpedos) {
+            if (numberOfTorpedos < 1) {
+                throw new IllegalArgumentException("numberOfTorpedos");
+            }
+            if (numberOfTorpedos > torpedoCount) {
+                return false;
+            }
+            if (RandomSource.current().nextDouble() >= failureRate) {
+                torpedoCount -= numberOfTorpedos;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized boolean isEmpty() {
+            return torpedoCount <= 0;
+        }
+    }
+}
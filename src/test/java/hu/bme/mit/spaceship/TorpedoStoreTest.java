@@ -1,6 +1,13 @@
 package hu.bme.mit.spaceship;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.jupiter.api.Test;
 
@@ -17,4 +24,122 @@ class TorpedoStoreTest {
         // Assert
         assertEquals(true, result);
     }
+
+    @Test
+    void fire_MoreThanStored_Fails() {
+        // Arrange
+        TorpedoStore store = new TorpedoStore(2, 0.0);
+
+        // Act
+        store.fire(1);
+
+        // Assert
+        assertEquals(false, store.fire(2));
+        assertEquals(1, store.getTorpedoCount());
+        assertThrows(IllegalArgumentException.class, () -> store.fire(0));
+    }
+
+    @Test
+    void fireSalvo_Reliable_LaunchesAll() {
+        // Arrange
+        TorpedoStore store = new TorpedoStore(1000, 0.0);
+
+        // Act
+        int launched = store.fireSalvo(600);
+
+        // Assert
+        assertEquals(600, launched);
+        assertEquals(400, store.getTorpedoCount());
+    }
+
+    @Test
+    void fireSalvo_Unreliable_KeepsFailedTorpedoes() {
+        // Arrange
+        TorpedoStore store = new TorpedoStore(10_000, 0.3, RandomSource.seeded(5));
+
+        // Act
+        int launched = store.fireSalvo(10_000);
+
+        // Assert
+        assertTrue(launched > 6_800 && launched < 7_200, Integer.toString(launched));
+        assertEquals(10_000 - launched, store.getTorpedoCount());
+        assertTrue(store.fireSalvo(10_000) <= 10_000 - launched);
+    }
+
+    @Test
+    void fire_ManyThreads_EachTorpedoFiredOnce() throws InterruptedException {
+        // Arrange
+        int torpedoes = 200_000;
+        TorpedoStore store = new TorpedoStore(torpedoes, 0.0);
+        AtomicLong fired = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long count = 0;
+                while (!store.isEmpty()) {
+                    // fails if emptied by another thread since the check
+                    if (store.fire(1)) {
+                        count++;
+                    }
+                }
+                fired.addAndGet(count);
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        // Act
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Assert
+        assertEquals(torpedoes, fired.get());
+        assertEquals(0, store.getTorpedoCount());
+    }
+
+    @Test
+    void fireSalvo_ManyThreads_EachTorpedoLaunchedOnce() throws InterruptedException {
+        // Arrange
+        int torpedoes = 200_000;
+        TorpedoStore store = new TorpedoStore(torpedoes, 0.99);
+        AtomicLong launched = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long count = 0;
+                while (!store.isEmpty()) {
+                    // never throws, even if the store is emptied by another thread
+                    count += store.fireSalvo();
+                }
+                count += store.fireSalvo();
+                launched.addAndGet(count);
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        // Act
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Assert
+        assertEquals(torpedoes, launched.get());
+        assertEquals(0, store.getTorpedoCount());
+    }
 }
@@ -0,0 +1,38 @@
+package hu.bme.mit.spaceship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class WarmUpTest {
+
+    @Test
+    void run_NoTime_SingleRound() {
+        // Arrange
+
+        // Act
+        WarmUp.Result result = WarmUp.run(OutputFormat.TEXT, 0);
+
+        // Assert
+        assertEquals(1, result.rounds);
+        assertFalse(result.settled);
+        assertTrue(result.nanosPerCommand > 0);
+    }
+
+    @Test
+    void run_TimeLimit_StopsInTime() {
+        // Arrange
+        long limit = 500_000_000L;
+
+        // Act
+        WarmUp.Result result = WarmUp.run(OutputFormat.BITS, limit);
+
+        // Assert
+        assertTrue(result.rounds >= 1);
+        assertTrue(result.settled || result.nanos >= limit);
+        // a round takes well under a second
+        assertTrue(result.nanos < limit + 1_000_000_000L);
+    }
+}